@@ -0,0 +1,39 @@
+package com.example.attendanceapp;
+
+import android.app.Application;
+import android.content.pm.ApplicationInfo;
+import android.os.StrictMode;
+
+public class AttendanceApp extends Application {
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Debug builds log every disk read or write made on the main thread; all
+        // database and file work is expected to go through AttendanceRepository.
+        if ((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0) {
+            StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                    .detectDiskReads()
+                    .detectDiskWrites()
+                    .penaltyLog()
+                    .build());
+        }
+        AttendanceRepository repository = AttendanceRepository.getInstance(this);
+        // Metrics only record once switched on from MetricsActivity, in any build; the
+        // switch is read off the main thread like any other file.
+        repository.read(() -> MetricsActivity.isRecording(this), Metrics::setEnabled);
+        repository.verifySummaries();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        AttendanceRepository repository = AttendanceRepository.getInstance(this);
+        repository.trimMemory(level);
+        // Once the app is out of sight nobody waits on the writer, so archiving and
+        // compaction run then, each only when its interval has passed.
+        if (level == TRIM_MEMORY_UI_HIDDEN) {
+            repository.archiveHistory();
+            repository.compactDatabase(null);
+        }
+    }
+}
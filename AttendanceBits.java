@@ -0,0 +1,55 @@
+package com.example.attendanceapp;
+
+// Helpers for the compact attendance history in DbHelper's ATTENDANCE_BITS_TABLE.
+// One row holds a student's month in two 31-bit masks: bit (day - 1) of the presence
+// mask is set when that day was marked, and the same bit of the status mask is set
+// when the mark was "P". Months are keyed as year * 12 + (month - 1).
+final class AttendanceBits {
+    private AttendanceBits() {
+    }
+
+    static int monthKey(long epochDay) {
+        long[] civil = toCivil(epochDay);
+        return (int) (civil[0] * 12 + civil[1] - 1);
+    }
+
+    static int dayBit(long epochDay) {
+        return 1 << (toCivil(epochDay)[2] - 1);
+    }
+
+    // Epoch day of the given day (1-based) of a month key.
+    static long epochDay(int monthKey, int day) {
+        return fromCivil(monthKey / 12, monthKey % 12 + 1, day);
+    }
+
+    static int presentDays(int presenceBits, int statusBits) {
+        return Integer.bitCount(presenceBits & statusBits);
+    }
+
+    static int markedDays(int presenceBits) {
+        return Integer.bitCount(presenceBits);
+    }
+
+    // {year, month (1-12), day} for an epoch day, using integer arithmetic only.
+    private static long[] toCivil(long epochDay) {
+        long z = epochDay + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        long day = doy - (153 * mp + 2) / 5 + 1;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+        return new long[]{year, month, day};
+    }
+
+    private static long fromCivil(long year, long month, long day) {
+        year -= month <= 2 ? 1 : 0;
+        long era = (year >= 0 ? year : year - 399) / 400;
+        long yoe = year - era * 400;
+        long doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.attendanceapp;
+
+import android.util.LruCache;
+import android.util.LongSparseArray;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Process-wide LRU of what the screens read most: class pages, roster pages and the
+// marks of one class in one period of a date. Entries are sized in approximate bytes against a
+// fraction of the heap. AttendanceRepository invalidates entries around every write;
+// a value read before an invalidation is never stored after it, so a slow read cannot
+// put stale rows back.
+class AttendanceCache {
+    private static final int HEAP_FRACTION = 32;
+    private static final int ENTRY_BYTES = 48;
+    private static final int ROW_BYTES = 64;
+    private static final int MARK_BYTES = 40;
+
+    private final LruCache<String, Object> entries;
+    // Classes whose roster was checked against students.csv in this process. The file
+    // ships in the APK, so it cannot change until the process restarts.
+    private final Set<Long> importedClasses = new HashSet<>();
+    private long version;
+
+    AttendanceCache() {
+        int maxBytes = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / HEAP_FRACTION);
+        entries = new LruCache<String, Object>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Object value) {
+                int rows = value instanceof List ? ((List<?>) value).size()
+                        : ((LongSparseArray<?>) value).size();
+                return ENTRY_BYTES + key.length() * 2
+                        + rows * (value instanceof List ? ROW_BYTES : MARK_BYTES);
+            }
+        };
+    }
+
+    static String classPageKey(long anchorCid, boolean forward, int limit) {
+        return "c/" + anchorCid + "/" + forward + "/" + limit;
+    }
+
+    static String studentPageKey(long cid, int anchorRoll, boolean forward, int limit) {
+        return "s/" + cid + "/" + anchorRoll + "/" + forward + "/" + limit;
+    }
+
+    static String statusKey(long cid, long date, int period) {
+        return "d/" + cid + "/" + date + "/" + period;
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> T get(String key) {
+        return (T) entries.get(key);
+    }
+
+    // Version to pass back to put() for a value about to be read from the database.
+    synchronized long version() {
+        return version;
+    }
+
+    synchronized void put(String key, Object value, long readVersion) {
+        if (readVersion == version) entries.put(key, value);
+    }
+
+    synchronized boolean isImported(long cid) {
+        return importedClasses.contains(cid);
+    }
+
+    synchronized void markImported(long cid) {
+        importedClasses.add(cid);
+    }
+
+    synchronized void invalidateClassList() {
+        version++;
+        removePrefix("c/");
+    }
+
+    // Roster pages carry each student's counters, so a changed mark invalidates them too.
+    synchronized void invalidateStudents(long cid) {
+        version++;
+        removePrefix("s/" + cid + "/");
+    }
+
+    synchronized void invalidateRosters() {
+        version++;
+        removePrefix("s/");
+    }
+
+    synchronized void invalidateStatuses(long cid) {
+        version++;
+        removePrefix("d/" + cid + "/");
+    }
+
+    synchronized void invalidateStatus(long cid, long date, int period) {
+        version++;
+        entries.remove(statusKey(cid, date, period));
+    }
+
+    synchronized void invalidateClass(long cid) {
+        version++;
+        removePrefix("c/");
+        removePrefix("s/" + cid + "/");
+        removePrefix("d/" + cid + "/");
+        importedClasses.remove(cid);
+    }
+
+    synchronized void invalidateAll() {
+        version++;
+        entries.evictAll();
+    }
+
+    // Hit, miss and hit-rate counts as kept by LruCache, plus the current footprint.
+    String stats() {
+        return entries + " size=" + entries.size() + "B";
+    }
+
+    private void removePrefix(String prefix) {
+        for (String key : entries.snapshot().keySet()) {
+            if (key.startsWith(prefix)) entries.remove(key);
+        }
+    }
+}
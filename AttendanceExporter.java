@@ -0,0 +1,183 @@
+package com.example.attendanceapp;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Environment;
+import android.provider.MediaStore;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+// Streams attendance reports into the Downloads folder as a matrix with one row per
+// student and one column per date. A date taught in several periods lists its marks in
+// period order, with '-' for a period the student has no mark in, e.g. "P-A". Rows go
+// straight from the database cursor into a buffered UTF-8 writer, so memory use
+// depends only on the number of days in the range, never on the number of classes or
+// students. Runs on a repository thread.
+class AttendanceExporter {
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int PROGRESS_INTERVAL = 100;
+
+    interface ProgressListener {
+        void onProgress(int done, int total);
+    }
+
+    private final Context context;
+    private final DbHelper dbHelper;
+
+    AttendanceExporter(Context context, DbHelper dbHelper) {
+        this.context = context;
+        this.dbHelper = dbHelper;
+    }
+
+    // A null cids array exports every class. Returns false if the download could not be
+    // created. A failure while writing deletes the partly written file and is thrown,
+    // for the repository to log and pass to the callback's onError.
+    boolean export(long[] cids, long fromDate, long toDate, String fileName, ProgressListener listener)
+            throws IOException {
+        long start = Metrics.start("AttendanceExporter.export");
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                ContentResolver resolver = context.getContentResolver();
+                Uri uri = resolver.insert(MediaStore.Downloads.EXTERNAL_CONTENT_URI, downloadValues(fileName));
+                if (uri == null) return false;
+                try {
+                    write(resolver.openOutputStream(uri), cids, fromDate, toDate, listener);
+                } catch (IOException | RuntimeException e) {
+                    resolver.delete(uri, null, null);
+                    throw e;
+                }
+            } else {
+                File file = new File(Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS), fileName);
+                try {
+                    write(new FileOutputStream(file), cids, fromDate, toDate, listener);
+                } catch (IOException | RuntimeException e) {
+                    file.delete();
+                    throw e;
+                }
+            }
+            return true;
+        } finally {
+            Metrics.stop(start);
+        }
+    }
+
+    private void write(OutputStream outputStream, long[] cids, long fromDate, long toDate, ProgressListener listener)
+            throws IOException {
+        if (outputStream == null) throw new IOException("Download could not be opened");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            writeReport(writer, cids, fromDate, toDate, listener);
+        }
+    }
+
+    private void writeReport(Writer writer, long[] cids, long fromDate, long toDate, ProgressListener listener) throws IOException {
+        writer.write("Class,Subject,Roll Number,Name"); // CSV header
+        for (long date = fromDate; date <= toDate; date++) {
+            writer.write(',');
+            writer.write(MyCalendar.formatEpochDay(date));
+        }
+        writer.write('\n');
+
+        int total = (int) dbHelper.countStudents(cids);
+        int done = 0;
+        StringBuilder[] marks = new StringBuilder[(int) (toDate - fromDate + 1)];
+        for (int i = 0; i < marks.length; i++) {
+            marks[i] = new StringBuilder();
+        }
+        Cursor classes = dbHelper.getClasses(cids);
+        try {
+            while (classes.moveToNext()) {
+                long cid = classes.getLong(classes.getColumnIndex(DbHelper.C_ID));
+                String className = classes.getString(classes.getColumnIndex(DbHelper.CLASS_NAME_KEY));
+                String subjectName = classes.getString(classes.getColumnIndex(DbHelper.SUBJECT_NAME_KEY));
+
+                // Reading the rows is what runs the query, so the section spans them
+                long classStart = Metrics.start("AttendanceExporter.writeClass");
+                Cursor rows = dbHelper.getAttendanceMatrix(cid, fromDate, toDate);
+                try {
+                    long sid = -1;
+                    int roll = 0;
+                    String name = null;
+                    while (rows.moveToNext()) {
+                        long rowSid = rows.getLong(0);
+                        if (rowSid != sid) {
+                            if (sid != -1) {
+                                writeRow(writer, className, subjectName, roll, name, marks);
+                                if (++done % PROGRESS_INTERVAL == 0) listener.onProgress(done, total);
+                            }
+                            sid = rowSid;
+                            roll = rows.getInt(1);
+                            name = rows.getString(2);
+                            for (StringBuilder cell : marks) {
+                                cell.setLength(0);
+                            }
+                        }
+                        if (!rows.isNull(3)) {
+                            StringBuilder cell = marks[(int) (rows.getLong(3) - fromDate)];
+                            int position = rows.getInt(4) - DbHelper.FIRST_PERIOD;
+                            while (cell.length() < position) cell.append('-');
+                            String status = rows.getString(5);
+                            cell.append(status.isEmpty() ? '-' : status.charAt(0));
+                        }
+                    }
+                    if (sid != -1) {
+                        writeRow(writer, className, subjectName, roll, name, marks);
+                        done++;
+                    }
+                } finally {
+                    rows.close();
+                    Metrics.stop(classStart);
+                }
+            }
+        } finally {
+            classes.close();
+        }
+        listener.onProgress(done, total);
+    }
+
+    private static void writeRow(Writer writer, String className, String subjectName, int roll, String name,
+                                 StringBuilder[] marks) throws IOException {
+        writeField(writer, className);
+        writer.write(',');
+        writeField(writer, subjectName);
+        writer.write(',');
+        writer.write(Integer.toString(roll));
+        writer.write(',');
+        writeField(writer, name);
+        for (StringBuilder cell : marks) {
+            writer.write(',');
+            writer.append(cell);
+        }
+        writer.write('\n');
+    }
+
+    // Quotes a field only when it holds a comma, quote or line break (RFC 4180).
+    private static void writeField(Writer writer, String value) throws IOException {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    // MediaStore entry for Android 10 and above; older devices write the file directly.
+    private static ContentValues downloadValues(String fileName) {
+        ContentValues values = new ContentValues();
+        values.put(MediaStore.Downloads.DISPLAY_NAME, fileName);
+        values.put(MediaStore.Downloads.MIME_TYPE, "text/csv");
+        values.put(MediaStore.Downloads.RELATIVE_PATH, Environment.DIRECTORY_DOWNLOADS);
+        return values;
+    }
+}
@@ -0,0 +1,375 @@
+package com.example.attendanceapp;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import android.util.LongSparseArray;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs every DbHelper call off the main thread. Writes are serialized on a single
+// writer thread; reads share a small fixed pool. Results are posted back to the
+// main thread through Callback. Reads that screens repeat are served from
+// AttendanceCache, which every write here invalidates once it has committed.
+class AttendanceRepository {
+    private static final String TAG = "AttendanceRepository";
+    private static final int READER_THREADS = 2;
+    // Marks are archived once their month is this many months behind the current one.
+    private static final int ARCHIVE_AFTER_MONTHS = 6;
+    // Background maintenance runs at most this often; the last runs are kept in
+    // MAINTENANCE_PREFS, with the schema version the counters were last checked at.
+    private static final long ARCHIVE_INTERVAL_MS = TimeUnit.DAYS.toMillis(1);
+    private static final long COMPACT_INTERVAL_MS = TimeUnit.DAYS.toMillis(7);
+    private static final String MAINTENANCE_PREFS = "maintenance";
+    private static final String ARCHIVED_AT_KEY = "archived_at";
+    private static final String COMPACTED_AT_KEY = "compacted_at";
+    private static final String SUMMARIES_VERIFIED_KEY = "summaries_verified_version";
+
+    private static AttendanceRepository instance;
+
+    private final Context context;
+    private final DbHelper dbHelper;
+    private final AttendanceCache cache = new AttendanceCache();
+    private final ExecutorService writeExecutor = Executors.newSingleThreadExecutor(threadFactory("db-writer"));
+    private final ExecutorService readExecutor = Executors.newFixedThreadPool(READER_THREADS, threadFactory("db-reader"));
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public interface Callback<T> {
+        void onResult(T result);
+
+        // The task threw instead; the exception has already been logged. Callers that
+        // hold state until the result arrives, such as a busy flag or a disabled button,
+        // reset it here.
+        default void onError(Exception e) {
+        }
+    }
+
+    interface Task<T> {
+        T run() throws Exception;
+    }
+
+    // A callback with a failure path, for the callers that need one.
+    static <T> Callback<T> callback(Callback<T> onResult, Callback<Exception> onError) {
+        return new Callback<T>() {
+            @Override
+            public void onResult(T result) {
+                onResult.onResult(result);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                onError.onResult(e);
+            }
+        };
+    }
+
+    static synchronized AttendanceRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new AttendanceRepository(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private AttendanceRepository(Context context) {
+        this.context = context;
+        this.dbHelper = new DbHelper(context);
+    }
+
+    // Keyset pages of CLASS_TABLE ordered by _CID, for KeysetPager.
+    KeysetPager.PageLoader<ClassItem> classPages() {
+        return (anchor, forward, limit) -> {
+            long anchorCid = anchor == null ? 0 : anchor.getCid();
+            String key = AttendanceCache.classPageKey(anchorCid, forward, limit);
+            List<ClassItem> cached = cache.get(key);
+            if (cached != null) return cached;
+            long version = cache.version();
+            ArrayList<ClassItem> classItems = new ArrayList<>();
+            long start = Metrics.start("AttendanceRepository.loadClassPage");
+            try {
+                Cursor cursor = dbHelper.getClassPage(anchorCid, forward, limit);
+                while (cursor.moveToNext()) {
+                    long id = cursor.getLong(cursor.getColumnIndex(DbHelper.C_ID));
+                    String className = cursor.getString(cursor.getColumnIndex(DbHelper.CLASS_NAME_KEY));
+                    String subjectName = cursor.getString(cursor.getColumnIndex(DbHelper.SUBJECT_NAME_KEY));
+                    classItems.add(new ClassItem(id, className, subjectName));
+                }
+                cursor.close();
+            } finally {
+                Metrics.stop(start);
+            }
+            if (!forward) Collections.reverse(classItems);
+            List<ClassItem> page = Collections.unmodifiableList(classItems);
+            cache.put(key, page, version);
+            return page;
+        };
+    }
+
+    // Opens the database, running any upgrade, and reads the first page of classes into
+    // the cache, so the class list can show without touching the disk. Runs on a reader
+    // so that start-up maintenance queued on the writer cannot hold it up.
+    void warmUp(int classPageSize, Callback<Boolean> callback) {
+        read(() -> {
+            long start = Metrics.start("AttendanceRepository.warmUp");
+            try {
+                classPages().loadPage(null, true, classPageSize);
+                return true;
+            } finally {
+                Metrics.stop(start);
+            }
+        }, callback);
+    }
+
+    void addClass(String className, String subjectName, Callback<Long> callback) {
+        write(() -> {
+            long cid = dbHelper.addClass(className, subjectName);
+            cache.invalidateClassList();
+            return cid;
+        }, callback);
+    }
+
+    void deleteClasses(long[] cids) {
+        write(() -> {
+            int deleted = dbHelper.deleteClasses(cids);
+            for (long cid : cids) {
+                cache.invalidateClass(cid);
+            }
+            return deleted;
+        }, null);
+    }
+
+    // Runs on the writer because the roster import may insert students. Delivers
+    // whether the roster changed; a class already checked in this process is skipped.
+    void importRoster(long cid, String className, String subjectName, Callback<Boolean> callback) {
+        write(() -> {
+            if (cache.isImported(cid)) return false;
+            try {
+                boolean changed = new RosterImporter(context, dbHelper).importIfChanged(cid, className, subjectName);
+                // Students are shared by the classes of a batch, so a rename shows in all of them
+                if (changed) cache.invalidateRosters();
+                cache.markImported(cid);
+                return changed;
+            } catch (IOException e) {
+                Log.e(TAG, "Error reading CSV file", e);
+                return false;
+            }
+        }, callback);
+    }
+
+    // Keyset pages of a class's students ordered by roll number, for KeysetPager.
+    KeysetPager.PageLoader<StudentItem> studentPages(long cid) {
+        return (anchor, forward, limit) -> {
+            int anchorRoll = anchor == null ? Integer.MIN_VALUE : anchor.getRoll();
+            String key = AttendanceCache.studentPageKey(cid, anchorRoll, forward, limit);
+            List<StudentItem> cached = cache.get(key);
+            if (cached != null) return cached;
+            long version = cache.version();
+            ArrayList<StudentItem> studentItems = new ArrayList<>();
+            long start = Metrics.start("AttendanceRepository.loadStudentPage");
+            try {
+                Cursor cursor = dbHelper.getStudentPage(cid, anchorRoll, forward, limit);
+                while (cursor.moveToNext()) {
+                    long sid = cursor.getLong(cursor.getColumnIndex(DbHelper.S_ID));
+                    int roll = cursor.getInt(cursor.getColumnIndex(DbHelper.STUDENT_ROLL_KEY));
+                    String name = cursor.getString(cursor.getColumnIndex(DbHelper.STUDENT_NAME_KEY));
+                    StudentItem studentItem = new StudentItem(sid, roll, name);
+                    studentItem.setCounts(cursor.getInt(cursor.getColumnIndex(DbHelper.PRESENT_COUNT_KEY)),
+                            cursor.getInt(cursor.getColumnIndex(DbHelper.TOTAL_COUNT_KEY)));
+                    studentItems.add(studentItem);
+                }
+                cursor.close();
+            } finally {
+                Metrics.stop(start);
+            }
+            if (!forward) Collections.reverse(studentItems);
+            List<StudentItem> page = Collections.unmodifiableList(studentItems);
+            cache.put(key, page, version);
+            return page;
+        };
+    }
+
+    void deleteStudents(long cid, long[] sids) {
+        write(() -> {
+            int deleted = dbHelper.deleteStudents(cid, sids);
+            cache.invalidateStudents(cid);
+            cache.invalidateStatuses(cid);
+            return deleted;
+        }, null);
+    }
+
+    // Delivers a copy the caller may edit as its sheet.
+    void loadStatuses(long cid, long date, int period, Callback<LongSparseArray<String>> callback) {
+        read(() -> {
+            String key = AttendanceCache.statusKey(cid, date, period);
+            LongSparseArray<String> statuses = cache.get(key);
+            if (statuses == null) {
+                long version = cache.version();
+                statuses = dbHelper.getStatusesForClass(cid, date, period);
+                cache.put(key, statuses, version);
+            }
+            return statuses.clone();
+        }, callback);
+    }
+
+    // Writes the given marks of a sheet, see DbHelper.saveStatuses(). They are copied
+    // first so that marks toggled while the save is queued cannot leak into it half-way
+    // through. Delivers the class's updated counters.
+    void saveStatuses(long cid, long date, int period, LongSparseArray<String> marks, boolean markBlanksAbsent,
+                      Callback<LongSparseArray<int[]>> callback) {
+        LongSparseArray<String> snapshot = marks.clone();
+        write(() -> {
+            dbHelper.saveStatuses(cid, date, period, snapshot, markBlanksAbsent);
+            cache.invalidateStatus(cid, date, period);
+            cache.invalidateStudents(cid);
+            return dbHelper.getSummariesForClass(cid);
+        }, callback);
+    }
+
+    // Marks a selection of students (the whole class for null) with one status in one
+    // period over a date range, or copies one day's marks of a period onto another. Both
+    // are written straight to the database and deliver the class's updated counters,
+    // like saveStatuses().
+    void fillStatuses(long cid, long[] sids, long fromDate, long toDate, int period, String status,
+                      Callback<LongSparseArray<int[]>> callback) {
+        write(() -> {
+            dbHelper.fillStatuses(cid, sids, fromDate, toDate, period, status);
+            cache.invalidateStatuses(cid);
+            cache.invalidateStudents(cid);
+            return dbHelper.getSummariesForClass(cid);
+        }, callback);
+    }
+
+    void copyStatuses(long cid, long fromDate, long toDate, int period, Callback<LongSparseArray<int[]>> callback) {
+        write(() -> {
+            dbHelper.copyStatuses(cid, fromDate, toDate, period);
+            cache.invalidateStatus(cid, toDate, period);
+            cache.invalidateStudents(cid);
+            return dbHelper.getSummariesForClass(cid);
+        }, callback);
+    }
+
+    // Periods of a date that already hold a saved sheet, for the period picker.
+    void loadMarkedPeriods(long cid, long date, Callback<int[]> callback) {
+        read(() -> dbHelper.getMarkedPeriods(cid, date), callback);
+    }
+
+    // Streams a date-range report of the given classes (all for null) into Downloads.
+    // Progress is delivered as a percentage of students written. A failed write is
+    // logged and reaches callback.onError, with the partial file already deleted.
+    void exportAttendance(long[] cids, long fromDate, long toDate, String fileName,
+                          Callback<Integer> progress, Callback<Boolean> callback) {
+        read(() -> new AttendanceExporter(context, dbHelper).export(cids, fromDate, toDate, fileName,
+                (done, total) -> {
+                    int percent = total == 0 ? 100 : done * 100 / total;
+                    mainHandler.post(() -> progress.onResult(percent));
+                }), callback);
+    }
+
+    // Moves marks of months past ARCHIVE_AFTER_MONTHS into the compact monthly bitsets,
+    // see DbHelper.archiveStatuses(). Cached reads stay valid, as the marks read the same.
+    // Does nothing if it already ran within ARCHIVE_INTERVAL_MS.
+    void archiveHistory() {
+        write(() -> {
+            if (!isDue(ARCHIVED_AT_KEY, ARCHIVE_INTERVAL_MS)) return 0;
+            int beforeMonthKey = AttendanceBits.monthKey(MyCalendar.todayEpochDay()) - ARCHIVE_AFTER_MONTHS;
+            int archived = dbHelper.archiveStatuses(beforeMonthKey);
+            if (archived > 0) Log.i(TAG, "Archived " + archived + " marks");
+            markDone(ARCHIVED_AT_KEY);
+            return archived;
+        }, null);
+    }
+
+    // Rebuilds the attendance counters if any of them drifted from the raw marks. The
+    // check scans every mark, so it runs once per schema version, after the upgrade.
+    void verifySummaries() {
+        write(() -> {
+            SharedPreferences prefs = context.getSharedPreferences(MAINTENANCE_PREFS, Context.MODE_PRIVATE);
+            if (prefs.getInt(SUMMARIES_VERIFIED_KEY, 0) == DbHelper.VERSION) return 0L;
+            long stale = dbHelper.countStaleSummaries();
+            if (stale > 0) {
+                Log.w(TAG, stale + " attendance summaries out of date, rebuilding");
+                dbHelper.rebuildSummaries();
+                cache.invalidateAll();
+            }
+            prefs.edit().putInt(SUMMARIES_VERIFIED_KEY, DbHelper.VERSION).apply();
+            return stale;
+        }, null);
+    }
+
+    // Logs the cache counters and, once the app is in the background, drops the cache.
+    void trimMemory(int level) {
+        Log.i(TAG, "Cache " + cache.stats());
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            cache.invalidateAll();
+        }
+    }
+
+    // Purges orphaned rows and returns free pages to the file system; delivers the
+    // bytes reclaimed. Does nothing if it already ran within COMPACT_INTERVAL_MS.
+    void compactDatabase(Callback<Long> callback) {
+        write(() -> {
+            if (!isDue(COMPACTED_AT_KEY, COMPACT_INTERVAL_MS)) return 0L;
+            long reclaimed = dbHelper.compact();
+            Log.i(TAG, "Compaction reclaimed " + reclaimed + " bytes");
+            markDone(COMPACTED_AT_KEY);
+            return reclaimed;
+        }, callback);
+    }
+
+    // Whether the task last run at key is older than interval; a clock set back counts
+    // as due.
+    private boolean isDue(String key, long interval) {
+        long lastRun = context.getSharedPreferences(MAINTENANCE_PREFS, Context.MODE_PRIVATE).getLong(key, 0);
+        long now = System.currentTimeMillis();
+        return now < lastRun || now - lastRun >= interval;
+    }
+
+    private void markDone(String key) {
+        context.getSharedPreferences(MAINTENANCE_PREFS, Context.MODE_PRIVATE).edit()
+                .putLong(key, System.currentTimeMillis()).apply();
+    }
+
+    <T> void read(Task<T> task, Callback<T> callback) {
+        readExecutor.execute(() -> deliver(task, callback));
+    }
+
+    <T> void write(Task<T> task, Callback<T> callback) {
+        writeExecutor.execute(() -> deliver(task, callback));
+    }
+
+    private <T> void deliver(Task<T> task, Callback<T> callback) {
+        T result;
+        try {
+            result = task.run();
+        } catch (Exception e) {
+            Log.e(TAG, "Background task failed", e);
+            if (callback != null) {
+                mainHandler.post(() -> callback.onError(e));
+            }
+            return;
+        }
+        if (callback != null) {
+            mainHandler.post(() -> callback.onResult(result));
+        }
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, name + "-" + count.incrementAndGet());
+    }
+}
@@ -7,57 +7,98 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.ArrayList;
-public class ClassAdapter extends RecyclerView.Adapter<ClassAdapter.ClassViewHolder> {
-    ArrayList<ClassItem> classItems;
+public class ClassAdapter extends ListAdapter<ClassItem, ClassAdapter.ClassViewHolder> {
     Context context;
     private OnItemClickListener onItemClickListener;
+    private final int normalColor;
+    private final int selectedColor;
+    // Class whose row opened the context menu, for onContextItemSelected().
+    private long contextMenuCid = RecyclerView.NO_ID;
+
+    private static final DiffUtil.ItemCallback<ClassItem> DIFF_CALLBACK = new DiffUtil.ItemCallback<ClassItem>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull ClassItem oldItem, @NonNull ClassItem newItem) {
+            return oldItem.getCid() == newItem.getCid();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull ClassItem oldItem, @NonNull ClassItem newItem) {
+            return oldItem.getClassName().equals(newItem.getClassName())
+                    && oldItem.getSubjectName().equals(newItem.getSubjectName())
+                    && oldItem.isSelected() == newItem.isSelected();
+        }
+    };
+
     public interface OnItemClickListener{
-        void onClick(int position);
+        void onClick(long cid);
     }
 
     public void setOnItemClickListener(OnItemClickListener onItemClickListener) {
         this.onItemClickListener = onItemClickListener;
     }
 
-    public ClassAdapter(Context context, ArrayList<ClassItem> classItems) {
-        this.classItems = classItems;
+    public ClassAdapter(Context context) {
+        super(DIFF_CALLBACK);
         this.context=context;
+        normalColor = ContextCompat.getColor(context, R.color.white);
+        selectedColor = ContextCompat.getColor(context, R.color.selected);
+        setHasStableIds(true);
+    }
+
+    long getContextMenuCid() {
+        return contextMenuCid;
     }
 
-    public static class ClassViewHolder extends RecyclerView.ViewHolder implements View.OnCreateContextMenuListener{
+    // Rows report their class rather than their position, which may not match the
+    // list behind the adapter while a diff is pending.
+    public class ClassViewHolder extends RecyclerView.ViewHolder implements View.OnCreateContextMenuListener{
         TextView className;
         TextView subjectName;
-        public ClassViewHolder(@NonNull View itemView,OnItemClickListener onItemClickListener) {
+        View classLayout;
+        public ClassViewHolder(@NonNull View itemView) {
             super(itemView);
             className=itemView.findViewById(R.id.class_tv);
             subjectName=itemView.findViewById(R.id.subject_tv);
-            itemView.setOnClickListener(v -> onItemClickListener.onClick(getAdapterPosition()));
+            classLayout=itemView.findViewById(R.id.class_layout);
+            itemView.setOnClickListener(v -> {
+                int position=getAdapterPosition();
+                if (position!=RecyclerView.NO_POSITION) onItemClickListener.onClick(getItem(position).getCid());
+            });
             itemView.setOnCreateContextMenuListener(this);
         }
 
         @Override
         public void onCreateContextMenu(ContextMenu menu, View v, ContextMenu.ContextMenuInfo menuInfo) {
-            menu.add(getAdapterPosition(),1,0,"Delete");
+            int position=getAdapterPosition();
+            if (position==RecyclerView.NO_POSITION) return;
+            contextMenuCid=getItem(position).getCid();
+            menu.add(0,1,0,"Delete");
+            menu.add(0,2,0,"Select");
         }
     }
     @NonNull
     @Override
     public ClassViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View itemView= LayoutInflater.from(parent.getContext()).inflate(R.layout.class_item,parent,false);
-        return new ClassViewHolder(itemView,onItemClickListener);
+        return new ClassViewHolder(itemView);
     }
 
     @Override
     public void onBindViewHolder(@NonNull ClassViewHolder holder, int position) {
-        holder.className.setText(classItems.get(position).getClassName());
-        holder.subjectName.setText(classItems.get(position).getSubjectName());
+        long start = Metrics.start("ClassAdapter.onBindViewHolder");
+        holder.className.setText(getItem(position).getClassName());
+        holder.subjectName.setText(getItem(position).getSubjectName());
+        holder.classLayout.setBackgroundColor(getItem(position).isSelected() ? selectedColor : normalColor);
+        Metrics.stop(start);
     }
 
     @Override
-    public int getItemCount() {
-        return classItems.size();
+    public long getItemId(int position) {
+        return getItem(position).getCid();
     }
 }
@@ -39,4 +39,20 @@ public class ClassItem {
     public void setCid(long cid) {
         this.cid = cid;
     }
+
+    private boolean selected;
+
+    public boolean isSelected() {
+        return selected;
+    }
+
+    public void setSelected(boolean selected) {
+        this.selected = selected;
+    }
+
+    public ClassItem copy() {
+        ClassItem copy = new ClassItem(cid, className, subjectName);
+        copy.selected = selected;
+        return copy;
+    }
 }
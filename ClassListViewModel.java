@@ -0,0 +1,136 @@
+package com.example.attendanceapp;
+
+import androidx.lifecycle.ViewModel;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+
+// MainActivity's class list, selection and pending deletes. It outlives the activity
+// across configuration changes, so a rotation rebinds to the loaded window instead of
+// paging it in again. Used from the main thread only.
+public class ClassListViewModel extends ViewModel {
+    interface Listener {
+        // The rows or the selection changed.
+        void onClassesChanged();
+    }
+
+    static final int PAGE_SIZE = 50; // Also the page SplashActivity preloads
+    private static final int MAX_LOADED_CLASSES = 200;
+
+    private AttendanceRepository repository;
+    private KeysetPager<ClassItem> pager;
+    private ArrayList<ClassItem> classItems;
+    // Classes picked through the "Select" context item; taps toggle the selection
+    // while it is not empty.
+    private final HashSet<Long> selectedCids = new HashSet<>();
+    // Deleted rows kept while the undo snackbar is up.
+    private final Tombstones<ClassItem> deletedClasses = new Tombstones<>(ClassItem::getCid);
+    private Listener listener;
+
+    // Reads the first page the first time; returns false if the list is already
+    // loaded, i.e. the activity is only being recreated.
+    boolean load(AttendanceRepository repository) {
+        if (pager != null) return false;
+        this.repository = repository;
+        pager = new KeysetPager<>(repository, repository.classPages(), PAGE_SIZE, MAX_LOADED_CLASSES,
+                this::applySelection);
+        classItems = pager.getWindow();
+        pager.refresh();
+        return true;
+    }
+
+    // The activity in front, or null while there is none.
+    void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    ArrayList<ClassItem> getClasses() {
+        return classItems;
+    }
+
+    int getSelectedCount() {
+        return selectedCids.size();
+    }
+
+    // The selected classes, or none while nothing is selected.
+    Set<Long> getSelection() {
+        return new HashSet<>(selectedCids);
+    }
+
+    void onVisibleRange(int first, int last) {
+        pager.onVisibleRange(first, last);
+    }
+
+    // Drops rows pending deletion and brings selection flags in line; also runs
+    // whenever a page arrives.
+    private void applySelection() {
+        deletedClasses.filter(classItems);
+        for (int i = 0; i < classItems.size(); i++) {
+            boolean selected = selectedCids.contains(classItems.get(i).getCid());
+            if (selected != classItems.get(i).isSelected()) {
+                ClassItem updated = classItems.get(i).copy();
+                updated.setSelected(selected);
+                classItems.set(i, updated);
+            }
+        }
+        notifyChanged();
+    }
+
+    // Classes no longer in the window (paged out or deleted meanwhile) are ignored.
+    void toggleSelection(long cid) {
+        if (findClass(cid) == null) return;
+        if (!selectedCids.remove(cid)) selectedCids.add(cid);
+        applySelection();
+    }
+
+    // The loaded class with this id, or null once it has been paged out or deleted.
+    ClassItem findClass(long cid) {
+        for (ClassItem item : classItems) {
+            if (item.getCid() == cid) return item;
+        }
+        return null;
+    }
+
+    void addClass(String className, String subjectName) {
+        repository.addClass(className, subjectName, cid -> {
+            if (cid == -1 || !pager.isAtEnd()) return; // Paged in with the rest once scrolled to
+            classItems.add(new ClassItem(cid, className, subjectName));
+            notifyChanged();
+        });
+    }
+
+    // Takes the rows out of the window until commitDeletes() or undoDeletes(). Returns
+    // the number of rows taken out; 0 means they were already gone.
+    int deleteClasses(Set<Long> cids) {
+        commitDeletes(); // Only one batch is undoable at a time
+        int count = deletedClasses.bury(classItems, cids);
+        selectedCids.removeAll(cids);
+        notifyChanged();
+        if (count == 0) commitDeletes(); // No row to put back, so nothing to undo
+        return count;
+    }
+
+    void undoDeletes() {
+        deletedClasses.restore(classItems);
+        applySelection();
+    }
+
+    // Classes deleted but still undoable, for a recreated activity to offer the undo again.
+    int getPendingDeletes() {
+        return deletedClasses.size();
+    }
+
+    void commitDeletes() {
+        if (!deletedClasses.isEmpty()) repository.deleteClasses(deletedClasses.release());
+    }
+
+    @Override
+    protected void onCleared() {
+        listener = null;
+    }
+
+    private void notifyChanged() {
+        if (listener != null) listener.onClassesChanged();
+    }
+}
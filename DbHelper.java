@@ -3,14 +3,25 @@ package com.example.attendanceapp;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
-import android.util.Log;
+import android.database.sqlite.SQLiteStatement;
+import android.util.LongSparseArray;
 
 import androidx.annotation.Nullable;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 class DbHelper extends SQLiteOpenHelper {
-    private static final int VERSION = 2;
+    static final int VERSION = 11;
+    private static final int CACHE_SIZE_KB = 4096;
+    // Student ids bound per statement by the bulk operations, well under SQLite's
+    // default limit of 999 host parameters.
+    private static final int MAX_BULK_IDS = 500;
+    private static final long AUTO_VACUUM_INCREMENTAL = 2;
     private static final String CLASS_TABLE_NAME = "CLASS_TABLE";
     public static final String C_ID = "_CID";
     public static final String CLASS_NAME_KEY = "CLASS_NAME";
@@ -24,8 +35,12 @@ class DbHelper extends SQLiteOpenHelper {
                     "UNIQUE (" + CLASS_NAME_KEY + "," + SUBJECT_NAME_KEY + ")" +
                     ");";
 
+    // One row per person. Since version 9 a student who takes several subjects is stored
+    // once and joined to each of those classes through ENROLLMENT_TABLE; before that every
+    // class held its own copy. BATCH is the class column of students.csv.
     private static final String STUDENT_TABLE_NAME = "STUDENT_TABLE";
     public static final String S_ID = "_SID";
+    public static final String BATCH_KEY = "BATCH";
     public static final String STUDENT_NAME_KEY = "STUDENT_NAME";
     public static final String STUDENT_ROLL_KEY = "ROLL";
 
@@ -33,15 +48,43 @@ class DbHelper extends SQLiteOpenHelper {
             "CREATE TABLE " + STUDENT_TABLE_NAME +
                     "( " +
                     S_ID + " INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
-                    C_ID + " INTEGER NOT NULL, " +
+                    BATCH_KEY + " TEXT NOT NULL COLLATE NOCASE, " +
                     STUDENT_NAME_KEY + " TEXT NOT NULL, " +
                     STUDENT_ROLL_KEY + " INTEGER, " +
-                    " FOREIGN KEY ( " + C_ID + ") REFERENCES " + CLASS_TABLE_NAME + "(" + C_ID + ")" +
+                    " UNIQUE (" + BATCH_KEY + "," + STUDENT_ROLL_KEY + ")" +
                     ");";
 
+    // Which students take which class. The primary key serves a class's roster and the
+    // index the classes of one student; marks, counters and history hang off this row.
+    private static final String ENROLLMENT_TABLE_NAME = "ENROLLMENT_TABLE";
+
+    private static final String CREATE_ENROLLMENT_TABLE =
+            "CREATE TABLE " + ENROLLMENT_TABLE_NAME +
+                    "(" +
+                    C_ID + " INTEGER NOT NULL, " +
+                    S_ID + " INTEGER NOT NULL, " +
+                    " PRIMARY KEY (" + C_ID + "," + S_ID + ")," +
+                    " FOREIGN KEY (" + C_ID + ") REFERENCES " + CLASS_TABLE_NAME + "( " + C_ID + ") ON DELETE CASCADE," +
+                    " FOREIGN KEY (" + S_ID + ") REFERENCES " + STUDENT_TABLE_NAME + "( " + S_ID + ") ON DELETE CASCADE" +
+                    ") WITHOUT ROWID;";
+
+    private static final String CREATE_ENROLLMENT_STUDENT_INDEX =
+            "CREATE INDEX IF NOT EXISTS ENROLLMENT_STUDENT_INDEX ON " + ENROLLMENT_TABLE_NAME +
+                    "(" + S_ID + "," + C_ID + ");";
+
+    private static final String ENROLLMENT_KEY =
+            " FOREIGN KEY (" + C_ID + "," + S_ID + ") REFERENCES " + ENROLLMENT_TABLE_NAME +
+                    "(" + C_ID + "," + S_ID + ") ON DELETE CASCADE";
+
     private static final String STATUS_TABLE_NAME = "STATUS_TABLE";
     public static final String STATUS_ID = "_STATUS_ID";
+    // Days since 1970-01-01, see MyCalendar.getEpochDay(). Integer days sort and
+    // range-scan chronologically, unlike the dd.MM.yyyy strings stored before version 5.
     public static final String DATE_KEY = "STATUS_DATE";
+    // Lecture of the day, from FIRST_PERIOD up; each (class, date, period) is one sheet.
+    // Marks taken before version 10 all belong to the first period.
+    public static final String PERIOD_KEY = "PERIOD";
+    public static final int FIRST_PERIOD = 1;
     public static final String STATUS_KEY = "STATUS";
 
     private static final String CREATE_STATUS_TABLE =
@@ -50,38 +93,427 @@ class DbHelper extends SQLiteOpenHelper {
                     STATUS_ID + " INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
                     S_ID + " INTEGER NOT NULL, " +
                     C_ID + " INTEGER NOT NULL, " +
-                    DATE_KEY + " DATE NOT NULL, " +
+                    DATE_KEY + " INTEGER NOT NULL, " +
+                    PERIOD_KEY + " INTEGER NOT NULL DEFAULT " + FIRST_PERIOD + ", " +
+                    STATUS_KEY + " TEXT NOT NULL, " +
+                    " UNIQUE (" + S_ID + "," + C_ID + "," + DATE_KEY + "," + PERIOD_KEY + ")," +
+                    ENROLLMENT_KEY +
+                    ");";
+
+    // Covers the per-class sheet and date-range queries without touching the table rows;
+    // one (class, date, period) sheet is a single range of it.
+    private static final String CREATE_STATUS_CLASS_DATE_INDEX =
+            "CREATE INDEX IF NOT EXISTS STATUS_CLASS_DATE_INDEX ON " + STATUS_TABLE_NAME +
+                    "(" + C_ID + "," + DATE_KEY + "," + PERIOD_KEY + "," + S_ID + "," + STATUS_KEY + ");";
+
+    private static final String ROSTER_IMPORT_TABLE_NAME = "ROSTER_IMPORT_TABLE";
+    public static final String ROSTER_HASH_KEY = "CONTENT_HASH";
+
+    private static final String CREATE_ROSTER_IMPORT_TABLE =
+            "CREATE TABLE IF NOT EXISTS " + ROSTER_IMPORT_TABLE_NAME +
+                    "(" +
+                    C_ID + " INTEGER PRIMARY KEY NOT NULL, " +
+                    ROSTER_HASH_KEY + " TEXT NOT NULL, " +
+                    " FOREIGN KEY (" + C_ID + ") REFERENCES " + CLASS_TABLE_NAME + "( " + C_ID + ") ON DELETE CASCADE" +
+                    ");";
+
+    // Present/total counters per student and class, kept in step with STATUS_TABLE by
+    // triggers so percentages never need a scan of the raw marks.
+    private static final String SUMMARY_TABLE_NAME = "SUMMARY_TABLE";
+    public static final String PRESENT_COUNT_KEY = "PRESENT_COUNT";
+    public static final String TOTAL_COUNT_KEY = "TOTAL_COUNT";
+
+    private static final String CREATE_SUMMARY_TABLE =
+            "CREATE TABLE " + SUMMARY_TABLE_NAME +
+                    "(" +
+                    S_ID + " INTEGER NOT NULL, " +
+                    C_ID + " INTEGER NOT NULL, " +
+                    PRESENT_COUNT_KEY + " INTEGER NOT NULL DEFAULT 0, " +
+                    TOTAL_COUNT_KEY + " INTEGER NOT NULL DEFAULT 0, " +
+                    " PRIMARY KEY (" + S_ID + "," + C_ID + ")," +
+                    ENROLLMENT_KEY +
+                    ");";
+
+    private static final String CREATE_STATUS_INSERT_TRIGGER =
+            "CREATE TRIGGER IF NOT EXISTS STATUS_INSERT_SUMMARY AFTER INSERT ON " + STATUS_TABLE_NAME + " BEGIN " +
+                    "INSERT OR IGNORE INTO " + SUMMARY_TABLE_NAME + "(" + S_ID + "," + C_ID + ")" +
+                    " VALUES (NEW." + S_ID + ", NEW." + C_ID + "); " +
+                    "UPDATE " + SUMMARY_TABLE_NAME + " SET " +
+                    PRESENT_COUNT_KEY + " = " + PRESENT_COUNT_KEY + " + (NEW." + STATUS_KEY + "='P'), " +
+                    TOTAL_COUNT_KEY + " = " + TOTAL_COUNT_KEY + " + 1" +
+                    " WHERE " + S_ID + " = NEW." + S_ID + " AND " + C_ID + " = NEW." + C_ID + "; " +
+                    "END;";
+
+    private static final String CREATE_STATUS_UPDATE_TRIGGER =
+            "CREATE TRIGGER IF NOT EXISTS STATUS_UPDATE_SUMMARY AFTER UPDATE OF " + STATUS_KEY + " ON " + STATUS_TABLE_NAME + " BEGIN " +
+                    "UPDATE " + SUMMARY_TABLE_NAME + " SET " +
+                    PRESENT_COUNT_KEY + " = " + PRESENT_COUNT_KEY +
+                    " + (NEW." + STATUS_KEY + "='P') - (OLD." + STATUS_KEY + "='P')" +
+                    " WHERE " + S_ID + " = NEW." + S_ID + " AND " + C_ID + " = NEW." + C_ID + "; " +
+                    "END;";
+
+    private static final String CREATE_STATUS_DELETE_TRIGGER =
+            "CREATE TRIGGER IF NOT EXISTS STATUS_DELETE_SUMMARY AFTER DELETE ON " + STATUS_TABLE_NAME + " BEGIN " +
+                    "UPDATE " + SUMMARY_TABLE_NAME + " SET " +
+                    PRESENT_COUNT_KEY + " = " + PRESENT_COUNT_KEY + " - (OLD." + STATUS_KEY + "='P'), " +
+                    TOTAL_COUNT_KEY + " = " + TOTAL_COUNT_KEY + " - 1" +
+                    " WHERE " + S_ID + " = OLD." + S_ID + " AND " + C_ID + " = OLD." + C_ID + "; " +
+                    "END;";
+
+    // Archived history: one row per student, class, period and month with presence/status
+    // day masks, see AttendanceBits. compactStatuses() moves whole months of marks here
+    // out of STATUS_TABLE and thawStatuses() moves them back before they are written to,
+    // so a mark is only ever in one of the two tables. Readers take both only for
+    // months before archiveHorizon.
+    private static final String BITS_TABLE_NAME = "ATTENDANCE_BITS_TABLE";
+    public static final String MONTH_KEY = "MONTH_KEY";
+    public static final String PRESENCE_BITS_KEY = "PRESENCE_BITS";
+    public static final String STATUS_BITS_KEY = "STATUS_BITS";
+
+    private static final String CREATE_BITS_TABLE =
+            "CREATE TABLE " + BITS_TABLE_NAME +
+                    "(" +
+                    S_ID + " INTEGER NOT NULL, " +
+                    C_ID + " INTEGER NOT NULL, " +
+                    PERIOD_KEY + " INTEGER NOT NULL DEFAULT " + FIRST_PERIOD + ", " +
+                    MONTH_KEY + " INTEGER NOT NULL, " +
+                    PRESENCE_BITS_KEY + " INTEGER NOT NULL, " +
+                    STATUS_BITS_KEY + " INTEGER NOT NULL, " +
+                    " PRIMARY KEY (" + C_ID + "," + S_ID + "," + PERIOD_KEY + "," + MONTH_KEY + ")," +
+                    ENROLLMENT_KEY +
+                    ") WITHOUT ROWID;";
+
+    // The (class, month) pairs held in ATTENDANCE_BITS_TABLE, so the sheet on screen and
+    // writes to current months find out with one lookup that there is nothing archived.
+    private static final String ARCHIVED_MONTH_TABLE_NAME = "ARCHIVED_MONTH_TABLE";
+
+    private static final String CREATE_ARCHIVED_MONTH_TABLE =
+            "CREATE TABLE IF NOT EXISTS " + ARCHIVED_MONTH_TABLE_NAME +
+                    "(" +
+                    C_ID + " INTEGER NOT NULL, " +
+                    MONTH_KEY + " INTEGER NOT NULL, " +
+                    " PRIMARY KEY (" + C_ID + "," + MONTH_KEY + ")," +
+                    " FOREIGN KEY (" + C_ID + ") REFERENCES " + CLASS_TABLE_NAME + "( " + C_ID + ") ON DELETE CASCADE" +
+                    ") WITHOUT ROWID;";
+
+    // Present and marked days of each (student, class) in the archived months, summed
+    // with popcounts of the masks. Columns: _CID, _SID, p, t.
+    private static final String ARCHIVED_COUNTS =
+            "SELECT " + C_ID + "," + S_ID + "," +
+                    " SUM(" + bitCount(PRESENCE_BITS_KEY + " & " + STATUS_BITS_KEY) + ") AS p," +
+                    " SUM(" + bitCount(PRESENCE_BITS_KEY) + ") AS t" +
+                    " FROM " + BITS_TABLE_NAME + " GROUP BY " + C_ID + "," + S_ID;
+
+    // Whether any month of a class in a range of month keys is archived; parameters are
+    // the class and the two keys. It names no table of the enclosing query, so SQLite
+    // tests it once ahead of the outer loop and skips the archive side of a UNION when
+    // it is false, for the months below archiveHorizon that a class has not archived.
+    private static final String ARCHIVED_MONTHS =
+            "EXISTS (SELECT 1 FROM " + ARCHIVED_MONTH_TABLE_NAME +
+                    " WHERE " + C_ID + "=? AND " + MONTH_KEY + " BETWEEN ? AND ?)";
+
+    // The per-class student layout of versions 4 to 8. The upgrade steps written for
+    // those versions build these, and normalizeStudents() then moves their rows over.
+    // A foreign key may not name a table that does not exist yet, even deferred, so
+    // those steps cannot create the current tables before ENROLLMENT_TABLE is there.
+    private static final String LEGACY_STUDENT_KEYS =
+            " FOREIGN KEY (" + S_ID + ") REFERENCES " + STUDENT_TABLE_NAME + "( " + S_ID + ") ON DELETE CASCADE," +
+                    " FOREIGN KEY (" + C_ID + ") REFERENCES " + CLASS_TABLE_NAME + "( " + C_ID + ") ON DELETE CASCADE";
+
+    private static final String LEGACY_CREATE_STUDENT_CLASS_ROLL_INDEX =
+            "CREATE UNIQUE INDEX IF NOT EXISTS STUDENT_CLASS_ROLL_INDEX ON " + STUDENT_TABLE_NAME +
+                    "(" + C_ID + "," + STUDENT_ROLL_KEY + ");";
+
+    private static final String LEGACY_CREATE_STATUS_TABLE =
+            "CREATE TABLE " + STATUS_TABLE_NAME +
+                    "(" +
+                    STATUS_ID + " INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                    S_ID + " INTEGER NOT NULL, " +
+                    C_ID + " INTEGER NOT NULL, " +
+                    DATE_KEY + " INTEGER NOT NULL, " +
                     STATUS_KEY + " TEXT NOT NULL, " +
                     " UNIQUE (" + S_ID + "," + DATE_KEY + ")," +
-                    " FOREIGN KEY (" + S_ID + ") REFERENCES " + STUDENT_TABLE_NAME + "( " + S_ID + ")," +
-                    " FOREIGN KEY (" + C_ID + ") REFERENCES " + CLASS_TABLE_NAME + "( " + C_ID + ")" +
+                    LEGACY_STUDENT_KEYS +
+                    ");";
+
+    private static final String LEGACY_CREATE_SUMMARY_TABLE =
+            "CREATE TABLE " + SUMMARY_TABLE_NAME +
+                    "(" +
+                    S_ID + " INTEGER NOT NULL, " +
+                    C_ID + " INTEGER NOT NULL, " +
+                    PRESENT_COUNT_KEY + " INTEGER NOT NULL DEFAULT 0, " +
+                    TOTAL_COUNT_KEY + " INTEGER NOT NULL DEFAULT 0, " +
+                    " PRIMARY KEY (" + S_ID + "," + C_ID + ")," +
+                    LEGACY_STUDENT_KEYS +
                     ");";
 
+    private static final String LEGACY_CREATE_BITS_TABLE =
+            "CREATE TABLE " + BITS_TABLE_NAME +
+                    "(" +
+                    S_ID + " INTEGER NOT NULL, " +
+                    C_ID + " INTEGER NOT NULL, " +
+                    MONTH_KEY + " INTEGER NOT NULL, " +
+                    PRESENCE_BITS_KEY + " INTEGER NOT NULL, " +
+                    STATUS_BITS_KEY + " INTEGER NOT NULL, " +
+                    " PRIMARY KEY (" + C_ID + "," + S_ID + "," + MONTH_KEY + ")," +
+                    LEGACY_STUDENT_KEYS +
+                    ") WITHOUT ROWID;";
+
+    // First month key after every archived month: dates from it on are only ever in
+    // STATUS_TABLE, so their reads leave out the archive side and their writes skip the
+    // thaw. Read in onOpen(), raised before compactStatuses() moves anything and lowered
+    // only after expandStatuses() commits, so it never falls below an archived month.
+    private volatile int archiveHorizon;
+
     public DbHelper(@Nullable Context context) {
         super(context, "Attendance.db", null, VERSION);
     }
 
+    // WAL lets the repository's reader threads scan reports while the writer commits,
+    // and synchronous=NORMAL is durable enough under WAL without an fsync per commit.
+    // auto_vacuum only takes effect on a new file; older ones are switched by compact().
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        db.execSQL("PRAGMA auto_vacuum=INCREMENTAL");
+        db.enableWriteAheadLogging();
+        db.setForeignKeyConstraintsEnabled(true);
+        db.execSQL("PRAGMA synchronous=NORMAL");
+        db.execSQL("PRAGMA cache_size=-" + CACHE_SIZE_KB);
+    }
+
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+        archiveHorizon = readArchiveHorizon(db);
+    }
+
+    private static int readArchiveHorizon(SQLiteDatabase db) {
+        return (int) DatabaseUtils.longForQuery(db,
+                "SELECT IFNULL(MAX(" + MONTH_KEY + ") + 1, 0) FROM " + ARCHIVED_MONTH_TABLE_NAME, null);
+    }
+
+    // Whether marks from fromDate on can be in ATTENDANCE_BITS_TABLE.
+    private boolean mayBeArchived(long fromDate) {
+        return AttendanceBits.monthKey(fromDate) < archiveHorizon;
+    }
+
     @Override
     public void onCreate(SQLiteDatabase db) {
-        db.execSQL(CREATE_CLASS_TABLE);
-        db.execSQL(CREATE_STUDENT_TABLE);
-        db.execSQL(CREATE_STATUS_TABLE);
+        long start = Metrics.start("DbHelper.onCreate");
+        try {
+            db.execSQL(CREATE_CLASS_TABLE);
+            db.execSQL(CREATE_STUDENT_TABLE);
+            db.execSQL(CREATE_ENROLLMENT_TABLE);
+            db.execSQL(CREATE_ENROLLMENT_STUDENT_INDEX);
+            db.execSQL(CREATE_STATUS_TABLE);
+            db.execSQL(CREATE_STATUS_CLASS_DATE_INDEX);
+            db.execSQL(CREATE_ROSTER_IMPORT_TABLE);
+            db.execSQL(CREATE_SUMMARY_TABLE);
+            createSummaryTriggers(db);
+            db.execSQL(CREATE_BITS_TABLE);
+            db.execSQL(CREATE_ARCHIVED_MONTH_TABLE);
+        } finally {
+            Metrics.stop(start);
+        }
+    }
+
+    // STATUS_TABLE rebuilds drop these along with the old table, so migrations call this again.
+    private static void createSummaryTriggers(SQLiteDatabase db) {
+        db.execSQL(CREATE_STATUS_INSERT_TRIGGER);
+        db.execSQL(CREATE_STATUS_UPDATE_TRIGGER);
+        db.execSQL(CREATE_STATUS_DELETE_TRIGGER);
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        db.execSQL("DROP TABLE IF EXISTS " + CLASS_TABLE_NAME);
-        db.execSQL("DROP TABLE IF EXISTS " + STUDENT_TABLE_NAME);
-        db.execSQL("DROP TABLE IF EXISTS " + STATUS_TABLE_NAME);
-        onCreate(db); // Recreate tables
+        long start = Metrics.start("DbHelper.onUpgrade");
+        try {
+            if (oldVersion < 2) {
+                db.execSQL("DROP TABLE IF EXISTS " + CLASS_TABLE_NAME);
+                db.execSQL("DROP TABLE IF EXISTS " + STUDENT_TABLE_NAME);
+                db.execSQL("DROP TABLE IF EXISTS " + STATUS_TABLE_NAME);
+                onCreate(db); // Recreate tables
+                return;
+            }
+            // Version 3 only added an index on STATUS_TABLE, which version 5 rebuilds anyway.
+            if (oldVersion < 4) {
+                removeDuplicateStudents(db);
+                db.execSQL(LEGACY_CREATE_STUDENT_CLASS_ROLL_INDEX);
+                db.execSQL(CREATE_ROSTER_IMPORT_TABLE);
+            }
+            if (oldVersion < 5) {
+                convertStatusDates(db);
+            }
+            if (oldVersion < 6) {
+                db.execSQL(LEGACY_CREATE_SUMMARY_TABLE);
+                rebuildSummaries(db);
+                createSummaryTriggers(db);
+            }
+            if (oldVersion < 7) {
+                db.execSQL(LEGACY_CREATE_BITS_TABLE);
+            }
+            // Version 8 rebuilt the child tables with ON DELETE CASCADE; version 9 rebuilds
+            // every one of them again, so the one step covers both. The tables it builds
+            // already have the version 10 periods.
+            if (oldVersion < 9) {
+                normalizeStudents(db);
+            } else if (oldVersion < 10) {
+                addPeriods(db);
+            }
+            // Before version 11 only compactStatuses() wrote ATTENDANCE_BITS_TABLE, and it
+            // left the marks it packed in STATUS_TABLE; the copies would now be read twice.
+            if (oldVersion < 11) {
+                db.execSQL("DELETE FROM " + BITS_TABLE_NAME);
+                db.execSQL(CREATE_ARCHIVED_MONTH_TABLE);
+            }
+        } finally {
+            Metrics.stop(start);
+        }
+    }
+
+    // Folds the per-class student copies into one person per (class name, roll) and
+    // enrolls that person in each class the copies belonged to, moving their marks and
+    // compact history across; a student without a roll number stays a person of their
+    // own. The person keeps the lowest old _SID, so ids of single-class students do not
+    // change. Rows whose class or student is already gone are dropped on the way.
+    // onUpgrade runs inside a transaction, where foreign keys cannot be switched off,
+    // so their checks are deferred to the commit instead. Old children are dropped
+    // before old parents so that no drop cascades into the new tables.
+    private static void normalizeStudents(SQLiteDatabase db) {
+        String[] tables = {STUDENT_TABLE_NAME, STATUS_TABLE_NAME, SUMMARY_TABLE_NAME, BITS_TABLE_NAME,
+                ROSTER_IMPORT_TABLE_NAME};
+        db.execSQL("PRAGMA defer_foreign_keys=ON");
+        for (String table : tables) {
+            db.execSQL("ALTER TABLE " + table + " RENAME TO " + table + "_OLD");
+        }
+        db.execSQL(CREATE_STUDENT_TABLE);
+        db.execSQL(CREATE_ENROLLMENT_TABLE);
+        db.execSQL(CREATE_STATUS_TABLE);
+        db.execSQL(CREATE_SUMMARY_TABLE);
+        db.execSQL(CREATE_BITS_TABLE);
+        db.execSQL(CREATE_ROSTER_IMPORT_TABLE);
+
+        String oldStudents = " FROM " + STUDENT_TABLE_NAME + "_OLD old" +
+                " JOIN " + CLASS_TABLE_NAME + " c ON c." + C_ID + " = old." + C_ID;
+        db.execSQL("INSERT INTO " + STUDENT_TABLE_NAME +
+                "(" + S_ID + "," + BATCH_KEY + "," + STUDENT_NAME_KEY + "," + STUDENT_ROLL_KEY + ")" +
+                // The bare columns come from the row holding MIN(_SID)
+                " SELECT MIN(old." + S_ID + "), TRIM(c." + CLASS_NAME_KEY + "), old." + STUDENT_NAME_KEY +
+                ", old." + STUDENT_ROLL_KEY + oldStudents +
+                " GROUP BY TRIM(c." + CLASS_NAME_KEY + ") COLLATE NOCASE," +
+                " IFNULL(old." + STUDENT_ROLL_KEY + ", -old." + S_ID + ")");
+        db.execSQL("CREATE TEMP TABLE SID_MAP (OLD_SID INTEGER PRIMARY KEY, " + S_ID + " INTEGER NOT NULL)");
+        db.execSQL("INSERT INTO SID_MAP SELECT old." + S_ID + ", st." + S_ID + oldStudents +
+                " JOIN " + STUDENT_TABLE_NAME + " st ON st." + BATCH_KEY + " = TRIM(c." + CLASS_NAME_KEY + ")" +
+                " AND st." + STUDENT_ROLL_KEY + " = old." + STUDENT_ROLL_KEY);
+        db.execSQL("INSERT INTO SID_MAP SELECT old." + S_ID + ", old." + S_ID + oldStudents +
+                " WHERE old." + STUDENT_ROLL_KEY + " IS NULL");
+        db.execSQL("INSERT OR IGNORE INTO " + ENROLLMENT_TABLE_NAME + "(" + C_ID + "," + S_ID + ")" +
+                " SELECT old." + C_ID + ", m." + S_ID + " FROM " + STUDENT_TABLE_NAME + "_OLD old" +
+                " JOIN SID_MAP m ON m.OLD_SID = old." + S_ID);
+
+        // Only marks and history of a student in their own class have an enrollment to keep
+        String enrolled = " JOIN SID_MAP m ON m.OLD_SID = old." + S_ID +
+                " JOIN " + ENROLLMENT_TABLE_NAME + " e ON e." + C_ID + " = old." + C_ID + " AND e." + S_ID + " = m." + S_ID;
+        db.execSQL("INSERT OR IGNORE INTO " + STATUS_TABLE_NAME +
+                "(" + STATUS_ID + "," + S_ID + "," + C_ID + "," + DATE_KEY + "," + STATUS_KEY + ")" +
+                " SELECT old." + STATUS_ID + ", m." + S_ID + ", old." + C_ID + ", old." + DATE_KEY + ", old." + STATUS_KEY +
+                " FROM " + STATUS_TABLE_NAME + "_OLD old" + enrolled);
+        db.execSQL("INSERT OR IGNORE INTO " + BITS_TABLE_NAME +
+                "(" + S_ID + "," + C_ID + "," + MONTH_KEY + "," + PRESENCE_BITS_KEY + "," + STATUS_BITS_KEY + ")" +
+                " SELECT m." + S_ID + ", old." + C_ID + ", old." + MONTH_KEY +
+                ", old." + PRESENCE_BITS_KEY + ", old." + STATUS_BITS_KEY +
+                " FROM " + BITS_TABLE_NAME + "_OLD old" + enrolled);
+        db.execSQL("INSERT INTO " + ROSTER_IMPORT_TABLE_NAME + " SELECT * FROM " + ROSTER_IMPORT_TABLE_NAME + "_OLD" +
+                " WHERE " + C_ID + " IN (SELECT " + C_ID + " FROM " + CLASS_TABLE_NAME + ")");
+
+        db.execSQL("DROP TABLE SID_MAP");
+        for (int i = tables.length - 1; i >= 0; i--) {
+            db.execSQL("DROP TABLE " + tables[i] + "_OLD");
+        }
+        db.execSQL(CREATE_ENROLLMENT_STUDENT_INDEX);
+        db.execSQL(CREATE_STATUS_CLASS_DATE_INDEX);
+        createSummaryTriggers(db);
+        rebuildSummaries(db);
+    }
+
+    // Rebuilds STATUS_TABLE and ATTENDANCE_BITS_TABLE with a PERIOD column, which takes
+    // part in their unique keys; every existing row becomes a first-period one. The
+    // counters do not change, as no mark is added or removed.
+    private static void addPeriods(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE " + STATUS_TABLE_NAME + " RENAME TO " + STATUS_TABLE_NAME + "_OLD");
+        db.execSQL("ALTER TABLE " + BITS_TABLE_NAME + " RENAME TO " + BITS_TABLE_NAME + "_OLD");
+        db.execSQL(CREATE_STATUS_TABLE);
+        db.execSQL(CREATE_BITS_TABLE);
+        String statusColumns = STATUS_ID + "," + S_ID + "," + C_ID + "," + DATE_KEY + "," + STATUS_KEY;
+        String bitsColumns = S_ID + "," + C_ID + "," + MONTH_KEY + "," + PRESENCE_BITS_KEY + "," + STATUS_BITS_KEY;
+        db.execSQL("INSERT INTO " + STATUS_TABLE_NAME + "(" + statusColumns + ")" +
+                " SELECT " + statusColumns + " FROM " + STATUS_TABLE_NAME + "_OLD");
+        db.execSQL("INSERT INTO " + BITS_TABLE_NAME + "(" + bitsColumns + ")" +
+                " SELECT " + bitsColumns + " FROM " + BITS_TABLE_NAME + "_OLD");
+        db.execSQL("DROP TABLE " + STATUS_TABLE_NAME + "_OLD");
+        db.execSQL("DROP TABLE " + BITS_TABLE_NAME + "_OLD");
+        db.execSQL(CREATE_STATUS_CLASS_DATE_INDEX);
+        createSummaryTriggers(db);
+    }
+
+    private static void rebuildSummaries(SQLiteDatabase db) {
+        db.execSQL("DELETE FROM " + SUMMARY_TABLE_NAME);
+        db.execSQL("INSERT INTO " + SUMMARY_TABLE_NAME +
+                "(" + S_ID + "," + C_ID + "," + PRESENT_COUNT_KEY + "," + TOTAL_COUNT_KEY + ")" +
+                " SELECT " + S_ID + "," + C_ID + ", SUM(" + STATUS_KEY + "='P'), COUNT(*)" +
+                " FROM " + STATUS_TABLE_NAME + " GROUP BY " + S_ID + "," + C_ID);
+    }
+
+    // Rebuilds STATUS_TABLE with epoch-day dates, converting the old dd.MM.yyyy strings.
+    // The rebuilt table has no index until normalizeStudents() builds the current one;
+    // CREATE_STATUS_CLASS_DATE_INDEX names columns this layout does not have yet.
+    private static void convertStatusDates(SQLiteDatabase db) {
+        String oldTable = STATUS_TABLE_NAME + "_OLD";
+        String isoDate = "substr(" + DATE_KEY + ",7,4)||'-'||substr(" + DATE_KEY + ",4,2)||'-'||substr(" + DATE_KEY + ",1,2)";
+        db.execSQL("ALTER TABLE " + STATUS_TABLE_NAME + " RENAME TO " + oldTable);
+        db.execSQL(LEGACY_CREATE_STATUS_TABLE);
+        db.execSQL("INSERT INTO " + STATUS_TABLE_NAME +
+                "(" + STATUS_ID + "," + S_ID + "," + C_ID + "," + DATE_KEY + "," + STATUS_KEY + ")" +
+                " SELECT " + STATUS_ID + "," + S_ID + "," + C_ID + "," +
+                " CAST(julianday(" + isoDate + ") - 2440587.5 AS INTEGER)," + STATUS_KEY +
+                " FROM " + oldTable + " WHERE julianday(" + isoDate + ") IS NOT NULL" +
+                // Foreign keys are enforced from here on; marks of deleted students cannot be kept
+                " AND " + S_ID + " IN (SELECT " + S_ID + " FROM " + STUDENT_TABLE_NAME + ")" +
+                " AND " + C_ID + " IN (SELECT " + C_ID + " FROM " + CLASS_TABLE_NAME + ")");
+        db.execSQL("DROP TABLE " + oldTable);
+    }
+
+    // Older versions re-inserted the whole CSV on every visit, so a class can hold many
+    // rows per roll number. Keep the newest row of each (class, roll), move the marks of
+    // the older copies onto it where that day is not already marked, and drop the rest.
+    private static void removeDuplicateStudents(SQLiteDatabase db) {
+        String keptSids = "SELECT MAX(" + S_ID + ") FROM " + STUDENT_TABLE_NAME +
+                " GROUP BY " + C_ID + "," + STUDENT_ROLL_KEY;
+        String duplicateSids = "SELECT " + S_ID + " FROM " + STUDENT_TABLE_NAME +
+                " WHERE " + S_ID + " NOT IN (" + keptSids + ")";
+        db.execSQL("UPDATE OR IGNORE " + STATUS_TABLE_NAME + " SET " + S_ID + " = (" +
+                "SELECT MAX(kept." + S_ID + ") FROM " + STUDENT_TABLE_NAME + " old" +
+                " JOIN " + STUDENT_TABLE_NAME + " kept ON kept." + C_ID + " = old." + C_ID +
+                " AND kept." + STUDENT_ROLL_KEY + " = old." + STUDENT_ROLL_KEY +
+                " WHERE old." + S_ID + " = " + STATUS_TABLE_NAME + "." + S_ID + ")" +
+                " WHERE " + S_ID + " IN (" + duplicateSids + ")");
+        db.execSQL("DELETE FROM " + STATUS_TABLE_NAME + " WHERE " + S_ID + " IN (" + duplicateSids + ")");
+        db.execSQL("DELETE FROM " + STUDENT_TABLE_NAME + " WHERE " + S_ID + " NOT IN (" + keptSids + ")");
     }
 
     long addClass(String className, String subjectName) {
-        SQLiteDatabase database = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(CLASS_NAME_KEY, className);
-        values.put(SUBJECT_NAME_KEY, subjectName);
-        return database.insert(CLASS_TABLE_NAME, null, values);
+        long start = Metrics.start("DbHelper.addClass");
+        try {
+            SQLiteDatabase database = this.getWritableDatabase();
+            ContentValues values = new ContentValues();
+            values.put(CLASS_NAME_KEY, className);
+            values.put(SUBJECT_NAME_KEY, subjectName);
+            return database.insert(CLASS_TABLE_NAME, null, values);
+        } finally {
+            Metrics.stop(start);
+        }
     }
 
     Cursor getClassTable() {
@@ -89,68 +521,1035 @@ class DbHelper extends SQLiteOpenHelper {
         return database.rawQuery("SELECT * FROM " + CLASS_TABLE_NAME, null);
     }
 
-    int deleteClass(long cid) {
+    // The given classes (all of them for null), ordered by _CID.
+    Cursor getClasses(long[] cids) {
+        SQLiteDatabase database = this.getReadableDatabase();
+        return database.rawQuery("SELECT * FROM " + CLASS_TABLE_NAME +
+                classFilter(cids, " WHERE ") + " ORDER BY " + C_ID, null);
+    }
+
+    long countStudents(long[] cids) {
+        long start = Metrics.start("DbHelper.countStudents");
+        try {
+            SQLiteDatabase database = this.getReadableDatabase();
+            return DatabaseUtils.longForQuery(database,
+                    "SELECT COUNT(*) FROM " + ENROLLMENT_TABLE_NAME + classFilter(cids, " WHERE "), null);
+        } finally {
+            Metrics.stop(start);
+        }
+    }
+
+    // "<prefix>_CID IN (...)" for an explicit class list, or nothing for null (all classes).
+    private static String classFilter(long[] cids, String prefix) {
+        if (cids == null) return "";
+        StringBuilder filter = new StringBuilder(prefix).append(C_ID).append(" IN (");
+        for (int i = 0; i < cids.length; i++) {
+            if (i > 0) filter.append(',');
+            filter.append(cids[i]);
+        }
+        return filter.append(')').toString();
+    }
+
+    // One keyset page of classes after (forward) or before the anchor _CID. Backward
+    // pages come back in descending order; the caller reverses them.
+    Cursor getClassPage(long anchorCid, boolean forward, int limit) {
         SQLiteDatabase database = this.getReadableDatabase();
-        return database.delete(CLASS_TABLE_NAME, C_ID + "=?", new String[]{String.valueOf(cid)});
+        return database.rawQuery(
+                "SELECT * FROM " + CLASS_TABLE_NAME +
+                        " WHERE " + C_ID + (forward ? ">" : "<") + "?" +
+                        " ORDER BY " + C_ID + (forward ? " ASC" : " DESC") + " LIMIT " + limit,
+                new String[]{String.valueOf(anchorCid)});
     }
 
+    // Enrollments, marks, counters and the import record cascade from the class row;
+    // students left without any class go with it.
+    int deleteClass(long cid) {
+        long start = Metrics.start("DbHelper.deleteClass");
+        try {
+            return deleteAll(CLASS_TABLE_NAME, C_ID, new long[]{cid});
+        } finally {
+            Metrics.stop(start);
+        }
+    }
+
+    // Enrolls the student with this roll number of the class's batch, adding them first
+    // if no other class has. Returns their _SID.
     long addStudent(long cid, int roll, String name) {
-        SQLiteDatabase database = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(C_ID, cid);
-        values.put(STUDENT_ROLL_KEY, roll);
-        values.put(STUDENT_NAME_KEY, name);
-        return database.insert(STUDENT_TABLE_NAME, null, values);
+        long start = Metrics.start("DbHelper.addStudent");
+        try {
+            SQLiteDatabase database = this.getWritableDatabase();
+            database.beginTransaction();
+            try {
+                enrollStudents(database, cid, Collections.singletonList(new StudentItem(0, roll, name)));
+                long sid = DatabaseUtils.longForQuery(database,
+                        "SELECT st." + S_ID + " FROM " + ENROLLMENT_TABLE_NAME + " e" +
+                                " JOIN " + STUDENT_TABLE_NAME + " st ON st." + S_ID + " = e." + S_ID +
+                                " WHERE e." + C_ID + "=? AND st." + STUDENT_ROLL_KEY + "=?",
+                        new String[]{String.valueOf(cid), String.valueOf(roll)});
+                database.setTransactionSuccessful();
+                return sid;
+            } finally {
+                database.endTransaction();
+            }
+        } finally {
+            Metrics.stop(start);
+        }
     }
 
+    // Adds each student to STUDENT_TABLE under the class's batch unless a class of the
+    // same batch already did, renames them if the roster spells them differently, and
+    // enrolls them in the class. Unchanged students cost no writes beyond the lookups.
+    private static void enrollStudents(SQLiteDatabase database, long cid, List<StudentItem> students) {
+        String batch = DatabaseUtils.stringForQuery(database,
+                "SELECT TRIM(" + CLASS_NAME_KEY + ") FROM " + CLASS_TABLE_NAME + " WHERE " + C_ID + "=?",
+                new String[]{String.valueOf(cid)});
+        SQLiteStatement insert = database.compileStatement(
+                "INSERT OR IGNORE INTO " + STUDENT_TABLE_NAME +
+                        "(" + BATCH_KEY + "," + STUDENT_ROLL_KEY + "," + STUDENT_NAME_KEY + ") VALUES (?,?,?)");
+        SQLiteStatement rename = database.compileStatement(
+                "UPDATE " + STUDENT_TABLE_NAME + " SET " + STUDENT_NAME_KEY + "=?" +
+                        " WHERE " + BATCH_KEY + "=? AND " + STUDENT_ROLL_KEY + "=? AND " + STUDENT_NAME_KEY + "<>?");
+        SQLiteStatement enroll = database.compileStatement(
+                "INSERT OR IGNORE INTO " + ENROLLMENT_TABLE_NAME + "(" + C_ID + "," + S_ID + ")" +
+                        " SELECT ?, " + S_ID + " FROM " + STUDENT_TABLE_NAME +
+                        " WHERE " + BATCH_KEY + "=? AND " + STUDENT_ROLL_KEY + "=?");
+        try {
+            for (StudentItem studentItem : students) {
+                insert.bindString(1, batch);
+                insert.bindLong(2, studentItem.getRoll());
+                insert.bindString(3, studentItem.getName());
+                if (insert.executeInsert() == -1) {
+                    rename.bindString(1, studentItem.getName());
+                    rename.bindString(2, batch);
+                    rename.bindLong(3, studentItem.getRoll());
+                    rename.bindString(4, studentItem.getName());
+                    rename.executeUpdateDelete();
+                }
+                enroll.bindLong(1, cid);
+                enroll.bindString(2, batch);
+                enroll.bindLong(3, studentItem.getRoll());
+                enroll.executeInsert();
+            }
+        } finally {
+            insert.close();
+            rename.close();
+            enroll.close();
+        }
+    }
+
+    private static final String SELECT_STUDENTS_WITH_SUMMARY =
+            "SELECT st.*," +
+                    " IFNULL(sm." + PRESENT_COUNT_KEY + ", 0) AS " + PRESENT_COUNT_KEY + "," +
+                    " IFNULL(sm." + TOTAL_COUNT_KEY + ", 0) AS " + TOTAL_COUNT_KEY +
+                    " FROM " + ENROLLMENT_TABLE_NAME + " e" +
+                    " JOIN " + STUDENT_TABLE_NAME + " st ON st." + S_ID + " = e." + S_ID +
+                    " LEFT JOIN " + SUMMARY_TABLE_NAME + " sm ON sm." + S_ID + " = e." + S_ID +
+                    " AND sm." + C_ID + " = e." + C_ID;
+
+    // Students of a class with their PRESENT_COUNT and TOTAL_COUNT for that class.
     Cursor getStudentTable(long cid) {
         SQLiteDatabase database = this.getReadableDatabase();
-        return database.query(STUDENT_TABLE_NAME, null, C_ID + "=?", new String[]{String.valueOf(cid)}, null, null, STUDENT_ROLL_KEY);
+        return database.rawQuery(
+                SELECT_STUDENTS_WITH_SUMMARY +
+                        " WHERE e." + C_ID + "=? ORDER BY st." + STUDENT_ROLL_KEY,
+                new String[]{String.valueOf(cid)});
     }
 
-    int deleteStudent(long sid) {
+    // One keyset page of getStudentTable() after (forward) or before the anchor roll
+    // number. Every student of a class belongs to its batch, so the page is a range of
+    // the UNIQUE (BATCH, ROLL) index, read in order and stopped at the limit, with one
+    // enrollment primary key lookup per row; nothing is sorted. CROSS JOIN keeps that
+    // index the outer loop. Backward pages come back descending.
+    Cursor getStudentPage(long cid, int anchorRoll, boolean forward, int limit) {
         SQLiteDatabase database = this.getReadableDatabase();
-        return database.delete(STUDENT_TABLE_NAME, S_ID + "=?", new String[]{String.valueOf(sid)});
+        return database.rawQuery(
+                "SELECT st.*," +
+                        " IFNULL(sm." + PRESENT_COUNT_KEY + ", 0) AS " + PRESENT_COUNT_KEY + "," +
+                        " IFNULL(sm." + TOTAL_COUNT_KEY + ", 0) AS " + TOTAL_COUNT_KEY +
+                        " FROM " + STUDENT_TABLE_NAME + " st" +
+                        " CROSS JOIN " + ENROLLMENT_TABLE_NAME + " e ON e." + C_ID + "=? AND e." + S_ID + " = st." + S_ID +
+                        " LEFT JOIN " + SUMMARY_TABLE_NAME + " sm ON sm." + S_ID + " = e." + S_ID +
+                        " AND sm." + C_ID + " = e." + C_ID +
+                        " WHERE st." + BATCH_KEY + " = (SELECT TRIM(" + CLASS_NAME_KEY + ") FROM " + CLASS_TABLE_NAME +
+                        " WHERE " + C_ID + "=?)" +
+                        " AND st." + STUDENT_ROLL_KEY + (forward ? ">" : "<") + "?" +
+                        " ORDER BY st." + STUDENT_ROLL_KEY + (forward ? " ASC" : " DESC") + " LIMIT " + limit,
+                new String[]{String.valueOf(cid), String.valueOf(cid), String.valueOf(anchorRoll)});
     }
 
-    long addStatus(long sid, long cid, String date, String status) {
-        SQLiteDatabase database = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(S_ID, sid);
-        values.put(C_ID, cid);
-        values.put(DATE_KEY, date);
-        values.put(STATUS_KEY, status);
-        return database.insert(STATUS_TABLE_NAME, null, values);
+    // sid -> {present, total} for every student of a class that has marks.
+    LongSparseArray<int[]> getSummariesForClass(long cid) {
+        long start = Metrics.start("DbHelper.getSummariesForClass");
+        try {
+            SQLiteDatabase database = this.getReadableDatabase();
+            Cursor cursor = database.rawQuery(
+                    "SELECT " + S_ID + "," + PRESENT_COUNT_KEY + "," + TOTAL_COUNT_KEY +
+                            " FROM " + SUMMARY_TABLE_NAME + " WHERE " + C_ID + "=?",
+                    new String[]{String.valueOf(cid)});
+            LongSparseArray<int[]> summaries = new LongSparseArray<>(cursor.getCount());
+            try {
+                while (cursor.moveToNext()) {
+                    summaries.put(cursor.getLong(0), new int[]{cursor.getInt(1), cursor.getInt(2)});
+                }
+            } finally {
+                cursor.close();
+            }
+            return summaries;
+        } finally {
+            Metrics.stop(start);
+        }
     }
 
-    long updateStatus(long sid, String date, String status) {
+    // One student's attendance in every class they take, by subject. Columns: _CID,
+    // CLASS_NAME, SUBJECT_NAME, PRESENT_COUNT, TOTAL_COUNT.
+    Cursor getStudentSubjects(long sid) {
+        SQLiteDatabase database = this.getReadableDatabase();
+        return database.rawQuery(
+                "SELECT c." + C_ID + ", c." + CLASS_NAME_KEY + ", c." + SUBJECT_NAME_KEY + "," +
+                        " IFNULL(sm." + PRESENT_COUNT_KEY + ", 0) AS " + PRESENT_COUNT_KEY + "," +
+                        " IFNULL(sm." + TOTAL_COUNT_KEY + ", 0) AS " + TOTAL_COUNT_KEY +
+                        " FROM " + ENROLLMENT_TABLE_NAME + " e" +
+                        " JOIN " + CLASS_TABLE_NAME + " c ON c." + C_ID + " = e." + C_ID +
+                        " LEFT JOIN " + SUMMARY_TABLE_NAME + " sm ON sm." + S_ID + " = e." + S_ID +
+                        " AND sm." + C_ID + " = e." + C_ID +
+                        " WHERE e." + S_ID + "=? ORDER BY c." + SUBJECT_NAME_KEY,
+                new String[]{String.valueOf(sid)});
+    }
+
+    // Number of (student, class) counters that disagree with the raw marks, those in
+    // STATUS_TABLE plus the popcounts of the archived months.
+    long countStaleSummaries() {
+        long start = Metrics.start("DbHelper.countStaleSummaries");
+        try {
+            SQLiteDatabase database = this.getReadableDatabase();
+            long wrong = DatabaseUtils.longForQuery(database,
+                    "SELECT COUNT(*) FROM " + SUMMARY_TABLE_NAME + " sm" +
+                            " LEFT JOIN (SELECT " + S_ID + "," + C_ID + "," +
+                            " SUM(" + STATUS_KEY + "='P') AS p, COUNT(*) AS t" +
+                            " FROM " + STATUS_TABLE_NAME + " GROUP BY " + S_ID + "," + C_ID + ") raw" +
+                            " ON raw." + S_ID + " = sm." + S_ID + " AND raw." + C_ID + " = sm." + C_ID +
+                            " LEFT JOIN (" + ARCHIVED_COUNTS + ") arc" +
+                            " ON arc." + S_ID + " = sm." + S_ID + " AND arc." + C_ID + " = sm." + C_ID +
+                            " WHERE sm." + PRESENT_COUNT_KEY + " != IFNULL(raw.p, 0) + IFNULL(arc.p, 0)" +
+                            " OR sm." + TOTAL_COUNT_KEY + " != IFNULL(raw.t, 0) + IFNULL(arc.t, 0)", null);
+            long missing = DatabaseUtils.longForQuery(database,
+                    "SELECT COUNT(*) FROM " + ENROLLMENT_TABLE_NAME + " e" +
+                            " WHERE NOT EXISTS (SELECT 1 FROM " + SUMMARY_TABLE_NAME + " sm WHERE sm." + S_ID + " = e." + S_ID +
+                            " AND sm." + C_ID + " = e." + C_ID + ")" +
+                            " AND (EXISTS (SELECT 1 FROM " + STATUS_TABLE_NAME + " s WHERE s." + S_ID + " = e." + S_ID +
+                            " AND s." + C_ID + " = e." + C_ID + ")" +
+                            " OR EXISTS (SELECT 1 FROM " + BITS_TABLE_NAME + " b WHERE b." + C_ID + " = e." + C_ID +
+                            " AND b." + S_ID + " = e." + S_ID + "))", null);
+            return wrong + missing;
+        } finally {
+            Metrics.stop(start);
+        }
+    }
+
+    // Recomputes every counter from the raw marks.
+    void rebuildSummaries() {
+        long start = Metrics.start("DbHelper.rebuildSummaries");
+        try {
+            SQLiteDatabase database = this.getWritableDatabase();
+            database.beginTransaction();
+            try {
+                rebuildSummaries(database);
+                // rebuildSummaries(database) counts STATUS_TABLE only; add the archived months
+                String archivedRows = " FROM " + BITS_TABLE_NAME + " b WHERE b." + C_ID + " = " + SUMMARY_TABLE_NAME + "." + C_ID +
+                        " AND b." + S_ID + " = " + SUMMARY_TABLE_NAME + "." + S_ID;
+                database.execSQL("INSERT OR IGNORE INTO " + SUMMARY_TABLE_NAME + "(" + S_ID + "," + C_ID + ")" +
+                        " SELECT DISTINCT " + S_ID + "," + C_ID + " FROM " + BITS_TABLE_NAME);
+                database.execSQL("UPDATE " + SUMMARY_TABLE_NAME + " SET " +
+                        PRESENT_COUNT_KEY + " = " + PRESENT_COUNT_KEY +
+                        " + (SELECT SUM(" + bitCount("b." + PRESENCE_BITS_KEY + " & b." + STATUS_BITS_KEY) + ")" + archivedRows + ")," +
+                        TOTAL_COUNT_KEY + " = " + TOTAL_COUNT_KEY +
+                        " + (SELECT SUM(" + bitCount("b." + PRESENCE_BITS_KEY) + ")" + archivedRows + ")" +
+                        " WHERE EXISTS (SELECT 1" + archivedRows + ")");
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+        } finally {
+            Metrics.stop(start);
+        }
+    }
+
+    // Takes a student off a class's roster. Their marks, counters and compact history in
+    // that class cascade from the enrollment; their other classes are left alone.
+    int deleteStudent(long cid, long sid) {
+        long start = Metrics.start("DbHelper.deleteStudent");
+        try {
+            return deleteStudents(cid, new long[]{sid});
+        } finally {
+            Metrics.stop(start);
+        }
+    }
+
+    // Batch forms of deleteStudent() and deleteClass(): one transaction, one DELETE per
+    // MAX_BULK_IDS ids, everything below the rows cascading. Return the rows deleted.
+    int deleteStudents(long cid, long[] sids) {
+        long start = Metrics.start("DbHelper.deleteStudents");
+        try {
+            return deleteAll(ENROLLMENT_TABLE_NAME, C_ID + "=" + cid + " AND " + S_ID, sids);
+        } finally {
+            Metrics.stop(start);
+        }
+    }
+
+    int deleteClasses(long[] cids) {
+        long start = Metrics.start("DbHelper.deleteClasses");
+        try {
+            return deleteAll(CLASS_TABLE_NAME, C_ID, cids);
+        } finally {
+            Metrics.stop(start);
+        }
+    }
+
+    // Students no longer enrolled anywhere are dropped in the same transaction.
+    private int deleteAll(String table, String idColumn, long[] ids) {
         SQLiteDatabase database = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(STATUS_KEY, status);
-        String whereClause = DATE_KEY + "='" + date + "' AND " + S_ID + "=" + sid;
-        return database.update(STATUS_TABLE_NAME, values, whereClause, null);
+        int deleted = 0;
+        database.beginTransaction();
+        try {
+            for (int start = 0; start < ids.length; start += MAX_BULK_IDS) {
+                int end = Math.min(ids.length, start + MAX_BULK_IDS);
+                SQLiteStatement delete = database.compileStatement(
+                        "DELETE FROM " + table + " WHERE " + idColumn + " IN (" + placeholders(end - start) + ")");
+                try {
+                    bindIds(delete, 1, ids, start, end);
+                    deleted += delete.executeUpdateDelete();
+                } finally {
+                    delete.close();
+                }
+            }
+            database.delete(STUDENT_TABLE_NAME, S_ID + " NOT IN (SELECT " + S_ID + " FROM " + ENROLLMENT_TABLE_NAME + ")", null);
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+        return deleted;
     }
 
-    String getStatus(long sid, String date) {
-        String status = null;
-        SQLiteDatabase database = this.getReadableDatabase();
-        String whereClause = DATE_KEY + "='" + date + "' AND " + S_ID + "=" + sid;
+    long addStatus(long sid, long cid, long date, int period, String status) {
+        long start = Metrics.start("DbHelper.addStatus");
+        try {
+            SQLiteDatabase database = this.getWritableDatabase();
+            ContentValues values = new ContentValues();
+            values.put(S_ID, sid);
+            values.put(C_ID, cid);
+            values.put(DATE_KEY, date);
+            values.put(PERIOD_KEY, period);
+            values.put(STATUS_KEY, status);
+            database.beginTransaction();
+            try {
+                thawStatuses(database, cid, date, date);
+                long id = database.insert(STATUS_TABLE_NAME, null, values);
+                database.setTransactionSuccessful();
+                return id;
+            } finally {
+                database.endTransaction();
+            }
+        } finally {
+            Metrics.stop(start);
+        }
+    }
 
-        Cursor cursor = database.query(STATUS_TABLE_NAME, null, whereClause, null, null, null, null);
-        if (cursor != null && cursor.moveToFirst()) {
-            int columnIndex = cursor.getColumnIndex(STATUS_KEY);
-            if (columnIndex != -1) {
-                status = cursor.getString(columnIndex);
+    long updateStatus(long sid, long cid, long date, int period, String status) {
+        long start = Metrics.start("DbHelper.updateStatus");
+        try {
+            SQLiteDatabase database = this.getWritableDatabase();
+            ContentValues values = new ContentValues();
+            values.put(STATUS_KEY, status);
+            String whereClause = DATE_KEY + "=? AND " + PERIOD_KEY + "=? AND " + S_ID + "=? AND " + C_ID + "=?";
+            database.beginTransaction();
+            try {
+                thawStatuses(database, cid, date, date);
+                int updated = database.update(STATUS_TABLE_NAME, values, whereClause,
+                        new String[]{String.valueOf(date), String.valueOf(period), String.valueOf(sid), String.valueOf(cid)});
+                database.setTransactionSuccessful();
+                return updated;
+            } finally {
+                database.endTransaction();
+            }
+        } finally {
+            Metrics.stop(start);
+        }
+    }
+
+    String getStatus(long sid, long cid, long date, int period) {
+        long start = Metrics.start("DbHelper.getStatus");
+        try {
+            // The mark may be in an archived month, which getStatusesForClass() reads too
+            return getStatusesForClass(cid, date, period).get(sid); // null if unmarked
+        } finally {
+            Metrics.stop(start);
+        }
+    }
+
+    String getRosterHash(long cid) {
+        long start = Metrics.start("DbHelper.getRosterHash");
+        try {
+            SQLiteDatabase database = this.getReadableDatabase();
+            Cursor cursor = database.query(ROSTER_IMPORT_TABLE_NAME, new String[]{ROSTER_HASH_KEY},
+                    C_ID + "=?", new String[]{String.valueOf(cid)}, null, null, null);
+            try {
+                return cursor.moveToFirst() ? cursor.getString(0) : null;
+            } finally {
+                cursor.close();
+            }
+        } finally {
+            Metrics.stop(start);
+        }
+    }
+
+    // Enrolls a class roster (see enrollStudents()) and records the hash of the file it
+    // came from, all in one transaction, so an unchanged file never has to be read again.
+    void importRoster(long cid, List<StudentItem> roster, String hash) {
+        long start = Metrics.start("DbHelper.importRoster");
+        try {
+            SQLiteDatabase database = this.getWritableDatabase();
+            database.beginTransaction();
+            try {
+                enrollStudents(database, cid, roster);
+                ContentValues values = new ContentValues();
+                values.put(C_ID, cid);
+                values.put(ROSTER_HASH_KEY, hash);
+                database.insertWithOnConflict(ROSTER_IMPORT_TABLE_NAME, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+        } finally {
+            Metrics.stop(start);
+        }
+    }
+
+    // Loads every status of a class in one period of a date with a single index range
+    // scan, or from the month's masks if it is archived: one primary key lookup per
+    // enrolled student, left out of the query for months after archiveHorizon. Students
+    // without a mark on that sheet are simply absent from the map.
+    LongSparseArray<String> getStatusesForClass(long cid, long date, int period) {
+        long start = Metrics.start("DbHelper.getStatusesForClass");
+        try {
+            SQLiteDatabase database = this.getReadableDatabase();
+            String live = "SELECT " + S_ID + "," + STATUS_KEY + " FROM " + STATUS_TABLE_NAME +
+                    " WHERE " + C_ID + "=? AND " + DATE_KEY + "=? AND " + PERIOD_KEY + "=?";
+            Cursor cursor;
+            if (!mayBeArchived(date)) {
+                cursor = database.rawQuery(live,
+                        new String[]{String.valueOf(cid), String.valueOf(date), String.valueOf(period)});
+            } else {
+                String monthKey = String.valueOf(AttendanceBits.monthKey(date));
+                String dayBit = String.valueOf(AttendanceBits.dayBit(date));
+                cursor = database.rawQuery(live +
+                                " UNION ALL" +
+                                " SELECT b." + S_ID + ", CASE WHEN b." + STATUS_BITS_KEY + " & ? THEN 'P' ELSE 'A' END" +
+                                // CROSS JOIN keeps the roster the outer loop; SQLite would rather scan the class's masks
+                                " FROM " + ENROLLMENT_TABLE_NAME + " e" +
+                                " CROSS JOIN " + BITS_TABLE_NAME + " b ON b." + C_ID + " = e." + C_ID + " AND b." + S_ID + " = e." + S_ID +
+                                " AND b." + PERIOD_KEY + "=? AND b." + MONTH_KEY + "=?" +
+                                " WHERE e." + C_ID + "=? AND b." + PRESENCE_BITS_KEY + " & ? AND " + ARCHIVED_MONTHS,
+                        new String[]{String.valueOf(cid), String.valueOf(date), String.valueOf(period),
+                                dayBit, String.valueOf(period), monthKey, String.valueOf(cid), dayBit,
+                                String.valueOf(cid), monthKey, monthKey});
+            }
+            LongSparseArray<String> statuses = new LongSparseArray<>(cursor.getCount());
+            try {
+                while (cursor.moveToNext()) {
+                    statuses.put(cursor.getLong(0), cursor.getString(1));
+                }
+            } finally {
+                cursor.close();
+            }
+            return statuses;
+        } finally {
+            Metrics.stop(start);
+        }
+    }
+
+    // Periods of a date that hold a saved sheet for the class, in order.
+    int[] getMarkedPeriods(long cid, long date) {
+        long start = Metrics.start("DbHelper.getMarkedPeriods");
+        try {
+            SQLiteDatabase database = this.getReadableDatabase();
+            String live = "SELECT DISTINCT " + PERIOD_KEY + " FROM " + STATUS_TABLE_NAME +
+                    " WHERE " + C_ID + "=? AND " + DATE_KEY + "=?";
+            Cursor cursor;
+            if (!mayBeArchived(date)) {
+                cursor = database.rawQuery(live + " ORDER BY 1", new String[]{String.valueOf(cid), String.valueOf(date)});
             } else {
-                Log.e("DbHelper", "Column index for STATUS_KEY is -1, check if the column exists in the STATUS_TABLE.");
+                String monthKey = String.valueOf(AttendanceBits.monthKey(date));
+                cursor = database.rawQuery(live +
+                                " UNION" +
+                                " SELECT b." + PERIOD_KEY + " FROM " + ENROLLMENT_TABLE_NAME + " e" +
+                                " CROSS JOIN " + BITS_TABLE_NAME + " b ON b." + C_ID + " = e." + C_ID + " AND b." + S_ID + " = e." + S_ID +
+                                " WHERE e." + C_ID + "=? AND b." + MONTH_KEY + "=? AND b." + PRESENCE_BITS_KEY + " & ?" +
+                                " AND " + ARCHIVED_MONTHS +
+                                " ORDER BY 1",
+                        new String[]{String.valueOf(cid), String.valueOf(date),
+                                String.valueOf(cid), monthKey, String.valueOf(AttendanceBits.dayBit(date)),
+                                String.valueOf(cid), monthKey, monthKey});
+            }
+            try {
+                int[] periods = new int[cursor.getCount()];
+                for (int i = 0; cursor.moveToNext(); i++) {
+                    periods[i] = cursor.getInt(0);
+                }
+                return periods;
+            } finally {
+                cursor.close();
+            }
+        } finally {
+            Metrics.stop(start);
+        }
+    }
+
+    // Marks of a class between two epoch days (inclusive), ordered by date and period,
+    // read straight from the covering index and, before archiveHorizon, from any
+    // archived month in the range. Columns: _SID, STATUS_DATE, PERIOD, STATUS.
+    Cursor getStatusRange(long cid, long fromDate, long toDate) {
+        SQLiteDatabase database = this.getReadableDatabase();
+        if (!mayBeArchived(fromDate)) {
+            return database.rawQuery(LIVE_MARKS_BETWEEN + " ORDER BY " + DATE_KEY + "," + PERIOD_KEY,
+                    new String[]{String.valueOf(cid), String.valueOf(fromDate), String.valueOf(toDate)});
+        }
+        return database.rawQuery(MARK_DAYS + MARKS_BETWEEN + " ORDER BY " + DATE_KEY + "," + PERIOD_KEY,
+                marksBetweenArgs(cid, fromDate, toDate));
+    }
+
+    // Every student of a class joined with their marks between two epoch days, ordered
+    // by roll number, date and period, so an export can pivot it in a single pass.
+    // Without archived months each student's marks come from the (_SID, _CID,
+    // STATUS_DATE) key; the unary plus on s._CID keeps SQLite off the covering
+    // (_CID, STATUS_DATE) index, which it would otherwise pick and then scan the class's
+    // whole range once per student. With them, the class's marks in the range are read
+    // once through MARKS_BETWEEN and matched to students by _SID.
+    // Columns: _SID, ROLL, STUDENT_NAME, STATUS_DATE (NULL if unmarked), PERIOD, STATUS.
+    Cursor getAttendanceMatrix(long cid, long fromDate, long toDate) {
+        SQLiteDatabase database = this.getReadableDatabase();
+        if (!mayBeArchived(fromDate)) {
+            return database.rawQuery(
+                    "SELECT st." + S_ID + ", st." + STUDENT_ROLL_KEY + ", st." + STUDENT_NAME_KEY + "," +
+                            " s." + DATE_KEY + ", s." + PERIOD_KEY + ", s." + STATUS_KEY +
+                            " FROM " + ENROLLMENT_TABLE_NAME + " e" +
+                            " JOIN " + STUDENT_TABLE_NAME + " st ON st." + S_ID + " = e." + S_ID +
+                            " LEFT JOIN " + STATUS_TABLE_NAME + " s ON s." + S_ID + " = e." + S_ID +
+                            " AND +s." + C_ID + " = e." + C_ID +
+                            " AND s." + DATE_KEY + " BETWEEN ? AND ?" +
+                            " WHERE e." + C_ID + "=?" +
+                            " ORDER BY st." + STUDENT_ROLL_KEY + ", st." + S_ID + ", s." + DATE_KEY + ", s." + PERIOD_KEY,
+                    new String[]{String.valueOf(fromDate), String.valueOf(toDate), String.valueOf(cid)});
+        }
+        return database.rawQuery(MARK_DAYS +
+                "SELECT st." + S_ID + ", st." + STUDENT_ROLL_KEY + ", st." + STUDENT_NAME_KEY + "," +
+                        " s." + DATE_KEY + ", s." + PERIOD_KEY + ", s." + STATUS_KEY +
+                        " FROM " + ENROLLMENT_TABLE_NAME + " e" +
+                        " JOIN " + STUDENT_TABLE_NAME + " st ON st." + S_ID + " = e." + S_ID +
+                        " LEFT JOIN (" + MARKS_BETWEEN + ") s ON s." + S_ID + " = e." + S_ID +
+                        " WHERE e." + C_ID + "=?" +
+                        " ORDER BY st." + STUDENT_ROLL_KEY + ", st." + S_ID + ", s." + DATE_KEY + ", s." + PERIOD_KEY,
+                marksBetweenArgs(cid, fromDate, toDate, String.valueOf(cid)));
+    }
+
+    // The days of a month, 1 to 31, for MARKS_BETWEEN to unpack the masks of.
+    private static final String MARK_DAYS =
+            "WITH RECURSIVE days(day) AS (SELECT 1 UNION ALL SELECT day + 1 FROM days WHERE day < 31) ";
+
+    // Marks of a class between two epoch days, from STATUS_TABLE and from the archived
+    // months, one row per set presence bit; parameters come from marksBetweenArgs().
+    // Columns: _SID, STATUS_DATE, PERIOD, STATUS. Needs the days of MARK_DAYS.
+    private static final String LIVE_MARKS_BETWEEN =
+            "SELECT " + S_ID + "," + DATE_KEY + "," + PERIOD_KEY + "," + STATUS_KEY + " FROM " + STATUS_TABLE_NAME +
+                    " WHERE " + C_ID + "=? AND " + DATE_KEY + " BETWEEN ? AND ?";
+
+    private static final String MARKS_BETWEEN =
+            LIVE_MARKS_BETWEEN +
+                    " UNION ALL" +
+                    " SELECT * FROM (SELECT b." + S_ID + "," +
+                    " CAST(julianday(printf('%04d-%02d-01', b." + MONTH_KEY + " / 12, b." + MONTH_KEY + " % 12 + 1))" +
+                    " - 2440587.5 AS INTEGER) + d.day - 1 AS " + DATE_KEY + "," +
+                    " b." + PERIOD_KEY + "," +
+                    " CASE WHEN b." + STATUS_BITS_KEY + " >> (d.day - 1) & 1 THEN 'P' ELSE 'A' END AS " + STATUS_KEY +
+                    " FROM " + BITS_TABLE_NAME + " b, days d" +
+                    " WHERE b." + C_ID + "=? AND b." + MONTH_KEY + " BETWEEN ? AND ?" +
+                    " AND b." + PRESENCE_BITS_KEY + " >> (d.day - 1) & 1 AND " + ARCHIVED_MONTHS + ")" +
+                    // A computed column has no affinity to convert the bound text to a number
+                    " WHERE " + DATE_KEY + " BETWEEN CAST(? AS INTEGER) AND CAST(? AS INTEGER)";
+
+    private static String[] marksBetweenArgs(long cid, long fromDate, long toDate, String... more) {
+        String classId = String.valueOf(cid);
+        String from = String.valueOf(fromDate);
+        String to = String.valueOf(toDate);
+        String fromMonth = String.valueOf(AttendanceBits.monthKey(fromDate));
+        String toMonth = String.valueOf(AttendanceBits.monthKey(toDate));
+        String[] args = {classId, from, to, classId, fromMonth, toMonth, classId, fromMonth, toMonth, from, to};
+        String[] all = Arrays.copyOf(args, args.length + more.length);
+        System.arraycopy(more, 0, all, args.length, more.length);
+        return all;
+    }
+
+    // Writes marks (sid -> "P"/"A") into one period's sheet in one transaction, reusing a
+    // single compiled UPDATE and INSERT instead of one autocommit write (and fsync) per
+    // student. An UPDATE-then-INSERT pair is used because the ON CONFLICT ... DO UPDATE
+    // upsert form needs SQLite 3.24, which older devices do not ship. Callers pass only
+    // the marks that changed, so one corrected student is one row write. With
+    // markBlanksAbsent, students of the class still without a mark are then marked
+    // absent with one INSERT ... SELECT.
+    void saveStatuses(long cid, long date, int period, LongSparseArray<String> sheet, boolean markBlanksAbsent) {
+        long start = Metrics.start("DbHelper.saveStatuses");
+        try {
+            SQLiteDatabase database = this.getWritableDatabase();
+            SQLiteStatement update = database.compileStatement(
+                    "UPDATE " + STATUS_TABLE_NAME + " SET " + STATUS_KEY + "=?" +
+                            " WHERE " + S_ID + "=? AND " + C_ID + "=? AND " + DATE_KEY + "=? AND " + PERIOD_KEY + "=?");
+            SQLiteStatement insert = database.compileStatement(
+                    "INSERT INTO " + STATUS_TABLE_NAME +
+                            "(" + S_ID + "," + C_ID + "," + DATE_KEY + "," + PERIOD_KEY + "," + STATUS_KEY + ") VALUES (?,?,?,?,?)");
+            database.beginTransaction();
+            try {
+                thawStatuses(database, cid, date, date);
+                for (int i = 0; i < sheet.size(); i++) {
+                    long sid = sheet.keyAt(i);
+                    String status = sheet.valueAt(i);
+
+                    update.bindString(1, status);
+                    update.bindLong(2, sid);
+                    update.bindLong(3, cid);
+                    update.bindLong(4, date);
+                    update.bindLong(5, period);
+                    if (update.executeUpdateDelete() == 0) {
+                        insert.bindLong(1, sid);
+                        insert.bindLong(2, cid);
+                        insert.bindLong(3, date);
+                        insert.bindLong(4, period);
+                        insert.bindString(5, status);
+                        insert.executeInsert();
+                    }
+                }
+                // Default to Absent if no status
+                if (markBlanksAbsent) database.execSQL("INSERT OR IGNORE INTO " + STATUS_TABLE_NAME +
+                                "(" + S_ID + "," + C_ID + "," + DATE_KEY + "," + PERIOD_KEY + "," + STATUS_KEY + ")" +
+                                " SELECT " + S_ID + "," + C_ID + ", ?, ?, 'A' FROM " + ENROLLMENT_TABLE_NAME +
+                                " WHERE " + C_ID + "=?",
+                        new Object[]{date, period, cid});
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+                update.close();
+                insert.close();
+            }
+        } finally {
+            Metrics.stop(start);
+        }
+    }
+
+    // Marks students of a class with one status in one period of every day from fromDate
+    // to toDate (inclusive), overwriting their existing marks. sids limits it to a selection; null
+    // means the whole class. Each chunk of ids is one UPDATE and one INSERT ... SELECT
+    // over a recursive CTE of the days, so a whole term costs no more statements than a
+    // single day. Returns the number of marks written or changed.
+    int fillStatuses(long cid, long[] sids, long fromDate, long toDate, int period, String status) {
+        long start = Metrics.start("DbHelper.fillStatuses");
+        try {
+            SQLiteDatabase database = this.getWritableDatabase();
+            int written = 0;
+            database.beginTransaction();
+            try {
+                thawStatuses(database, cid, fromDate, toDate);
+                if (sids == null) {
+                    written = fillStatuses(database, cid, null, 0, 0, fromDate, toDate, period, status);
+                } else {
+                    for (int first = 0; first < sids.length; first += MAX_BULK_IDS) {
+                        written += fillStatuses(database, cid, sids, first, Math.min(sids.length, first + MAX_BULK_IDS),
+                                fromDate, toDate, period, status);
+                    }
+                }
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
             }
-        } else {
-            Log.e("DbHelper", "Cursor is null or empty, check the query parameters: " + whereClause);
+            return written;
+        } finally {
+            Metrics.stop(start);
         }
+    }
+
+    private static int fillStatuses(SQLiteDatabase database, long cid, long[] sids, int start, int end,
+                                    long fromDate, long toDate, int period, String status) {
+        String selection = sids == null ? "" : " AND " + S_ID + " IN (" + placeholders(end - start) + ")";
+        SQLiteStatement update = database.compileStatement(
+                "UPDATE " + STATUS_TABLE_NAME + " SET " + STATUS_KEY + "=?" +
+                        " WHERE " + C_ID + "=? AND " + DATE_KEY + " BETWEEN ? AND ? AND " + PERIOD_KEY + "=?" +
+                        " AND " + STATUS_KEY + "<>?" + selection);
+        SQLiteStatement insert = database.compileStatement(
+                "INSERT OR IGNORE INTO " + STATUS_TABLE_NAME +
+                        "(" + S_ID + "," + C_ID + "," + DATE_KEY + "," + PERIOD_KEY + "," + STATUS_KEY + ")" +
+                        " WITH RECURSIVE days(day) AS (SELECT ? UNION ALL SELECT day + 1 FROM days WHERE day < ?)" +
+                        " SELECT " + S_ID + "," + C_ID + ", day, ?, ? FROM " + ENROLLMENT_TABLE_NAME + ", days" +
+                        " WHERE " + C_ID + "=?" + selection);
+        try {
+            update.bindString(1, status);
+            update.bindLong(2, cid);
+            update.bindLong(3, fromDate);
+            update.bindLong(4, toDate);
+            update.bindLong(5, period);
+            update.bindString(6, status);
+            bindIds(update, 7, sids, start, end);
+            insert.bindLong(1, fromDate);
+            insert.bindLong(2, toDate);
+            insert.bindLong(3, period);
+            insert.bindString(4, status);
+            insert.bindLong(5, cid);
+            bindIds(insert, 6, sids, start, end);
+            return update.executeUpdateDelete() + insert.executeUpdateDelete();
+        } finally {
+            update.close();
+            insert.close();
+        }
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder placeholders = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            placeholders.append(i == 0 ? "?" : ",?");
+        }
+        return placeholders.toString();
+    }
+
+    private static void bindIds(SQLiteStatement statement, int firstIndex, long[] sids, int start, int end) {
+        if (sids == null) return;
+        for (int i = start; i < end; i++) {
+            statement.bindLong(firstIndex + i - start, sids[i]);
+        }
+    }
+
+    // Copies a class's marks of one period from one day onto the same period of another
+    // with one UPDATE and one INSERT ... SELECT. Students unmarked on the source day keep
+    // whatever they have on the target day. Returns the number of marks written.
+    int copyStatuses(long cid, long fromDate, long toDate, int period) {
+        long start = Metrics.start("DbHelper.copyStatuses");
+        try {
+            SQLiteDatabase database = this.getWritableDatabase();
+            String sheet = C_ID + "=? AND " + DATE_KEY + "=? AND " + PERIOD_KEY + "=?";
+            SQLiteStatement update = database.compileStatement(
+                    "UPDATE " + STATUS_TABLE_NAME + " SET " + STATUS_KEY + " = (SELECT p." + STATUS_KEY +
+                            " FROM " + STATUS_TABLE_NAME + " p WHERE p." + S_ID + " = " + STATUS_TABLE_NAME + "." + S_ID +
+                            " AND p." + C_ID + " = " + STATUS_TABLE_NAME + "." + C_ID + " AND p." + DATE_KEY + "=?" +
+                            " AND p." + PERIOD_KEY + " = " + STATUS_TABLE_NAME + "." + PERIOD_KEY + ")" +
+                            " WHERE " + sheet + " AND " + S_ID + " IN (SELECT " + S_ID +
+                            " FROM " + STATUS_TABLE_NAME + " WHERE " + sheet + ")");
+            SQLiteStatement insert = database.compileStatement(
+                    "INSERT OR IGNORE INTO " + STATUS_TABLE_NAME +
+                            "(" + S_ID + "," + C_ID + "," + DATE_KEY + "," + PERIOD_KEY + "," + STATUS_KEY + ")" +
+                            " SELECT " + S_ID + "," + C_ID + ", ?, " + PERIOD_KEY + "," + STATUS_KEY + " FROM " + STATUS_TABLE_NAME +
+                            " WHERE " + sheet);
+            database.beginTransaction();
+            try {
+                thawStatuses(database, cid, fromDate, fromDate);
+                thawStatuses(database, cid, toDate, toDate);
+                update.bindLong(1, fromDate);
+                update.bindLong(2, cid);
+                update.bindLong(3, toDate);
+                update.bindLong(4, period);
+                update.bindLong(5, cid);
+                update.bindLong(6, fromDate);
+                update.bindLong(7, period);
+                insert.bindLong(1, toDate);
+                insert.bindLong(2, cid);
+                insert.bindLong(3, fromDate);
+                insert.bindLong(4, period);
+                int written = update.executeUpdateDelete() + insert.executeUpdateDelete();
+                database.setTransactionSuccessful();
+                return written;
+            } finally {
+                database.endTransaction();
+                update.close();
+                insert.close();
+            }
+        } finally {
+            Metrics.stop(start);
+        }
+    }
+
+    // Compacts the months before beforeMonthKey of every class, see compactStatuses(),
+    // one class per transaction so that a save queued behind it waits for one class at
+    // most. Returns the marks moved.
+    int archiveStatuses(int beforeMonthKey) {
+        long start = Metrics.start("DbHelper.archiveStatuses");
+        try {
+            SQLiteDatabase database = this.getWritableDatabase();
+            Cursor cursor = database.rawQuery("SELECT " + C_ID + " FROM " + CLASS_TABLE_NAME, null);
+            long[] cids = new long[cursor.getCount()];
+            try {
+                for (int i = 0; cursor.moveToNext(); i++) {
+                    cids[i] = cursor.getLong(0);
+                }
+            } finally {
+                cursor.close();
+            }
+            int marks = 0;
+            for (long cid : cids) {
+                marks += compactStatuses(cid, beforeMonthKey);
+            }
+            return marks;
+        } finally {
+            Metrics.stop(start);
+        }
+    }
+
+    // Moves a class's marks of the months before beforeMonthKey out of STATUS_TABLE into
+    // ATTENDANCE_BITS_TABLE, where a student's period in a month is one row instead of
+    // up to 31, and records those months in ARCHIVED_MONTH_TABLE. The read and the
+    // delete are both ranges of the (_CID, STATUS_DATE) index. The marks read back the
+    // same, so the counters must not change: the delete trigger takes each moved mark
+    // off them, and its month's popcounts are added back. Returns the marks moved.
+    int compactStatuses(long cid, int beforeMonthKey) {
+        long start = Metrics.start("DbHelper.compactStatuses");
+        try {
+            SQLiteDatabase database = this.getWritableDatabase();
+            if (beforeMonthKey > archiveHorizon) archiveHorizon = beforeMonthKey;
+            String[] before = {String.valueOf(cid), String.valueOf(AttendanceBits.epochDay(beforeMonthKey, 1))};
+            String range = C_ID + "=? AND " + DATE_KEY + "<?";
+            SQLiteStatement insert = database.compileStatement(
+                    "INSERT INTO " + BITS_TABLE_NAME +
+                            "(" + C_ID + "," + S_ID + "," + PERIOD_KEY + "," + MONTH_KEY + "," + PRESENCE_BITS_KEY + "," + STATUS_BITS_KEY + ")" +
+                            " VALUES (?,?,?,?,?,?)");
+            SQLiteStatement archived = database.compileStatement(
+                    "INSERT OR IGNORE INTO " + ARCHIVED_MONTH_TABLE_NAME + "(" + C_ID + "," + MONTH_KEY + ") VALUES (?,?)");
+            SQLiteStatement count = compileCountUpdate(database);
+            int marks = 0;
+            database.beginTransaction();
+            // Opened inside the transaction, so it reads exactly the rows deleted below
+            Cursor cursor = database.rawQuery(
+                    "SELECT " + S_ID + "," + PERIOD_KEY + "," + DATE_KEY + "," + STATUS_KEY + " FROM " + STATUS_TABLE_NAME +
+                            " WHERE " + range + " ORDER BY " + S_ID + "," + PERIOD_KEY + "," + DATE_KEY,
+                    before);
+            try {
+                long sid = -1;
+                int period = -1;
+                int monthKey = -1;
+                int presenceBits = 0;
+                int statusBits = 0;
+                while (cursor.moveToNext()) {
+                    long rowSid = cursor.getLong(0);
+                    int rowPeriod = cursor.getInt(1);
+                    long date = cursor.getLong(2);
+                    int rowMonthKey = AttendanceBits.monthKey(date);
+                    if (rowSid != sid || rowPeriod != period || rowMonthKey != monthKey) {
+                        if (sid != -1) {
+                            archiveMonth(insert, archived, count, cid, sid, period, monthKey, presenceBits, statusBits);
+                        }
+                        sid = rowSid;
+                        period = rowPeriod;
+                        monthKey = rowMonthKey;
+                        presenceBits = 0;
+                        statusBits = 0;
+                    }
+                    int dayBit = AttendanceBits.dayBit(date);
+                    presenceBits |= dayBit;
+                    if ("P".equals(cursor.getString(3))) statusBits |= dayBit;
+                    marks++;
+                }
+                if (sid != -1) {
+                    archiveMonth(insert, archived, count, cid, sid, period, monthKey, presenceBits, statusBits);
+                    database.delete(STATUS_TABLE_NAME, range, before);
+                }
+                database.setTransactionSuccessful();
+            } finally {
+                cursor.close();
+                database.endTransaction();
+                insert.close();
+                archived.close();
+                count.close();
+            }
+            return marks;
+        } finally {
+            Metrics.stop(start);
+        }
+    }
 
-        if (cursor != null) {
+    private static void archiveMonth(SQLiteStatement insert, SQLiteStatement archived, SQLiteStatement count,
+                                     long cid, long sid, int period, int monthKey, int presenceBits, int statusBits) {
+        insert.bindLong(1, cid);
+        insert.bindLong(2, sid);
+        insert.bindLong(3, period);
+        insert.bindLong(4, monthKey);
+        insert.bindLong(5, presenceBits);
+        insert.bindLong(6, statusBits);
+        insert.executeInsert();
+        archived.bindLong(1, cid);
+        archived.bindLong(2, monthKey);
+        archived.executeInsert();
+        updateCounts(count, cid, sid, AttendanceBits.presentDays(presenceBits, statusBits),
+                AttendanceBits.markedDays(presenceBits));
+    }
+
+    // Writes every archived month of a class back into STATUS_TABLE and drops its masks,
+    // the inverse of compactStatuses(). Returns the number of marks written.
+    int expandStatuses(long cid) {
+        long start = Metrics.start("DbHelper.expandStatuses");
+        try {
+            SQLiteDatabase database = this.getWritableDatabase();
+            int marks;
+            database.beginTransaction();
+            try {
+                marks = thawMonths(database, cid, 0, Integer.MAX_VALUE);
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+            archiveHorizon = readArchiveHorizon(database);
+            return marks;
+        } finally {
+            Metrics.stop(start);
+        }
+    }
+
+    // sid -> {present, marked} for a class over a range of month keys, summed with
+    // popcounts of the archived masks alone; months still in STATUS_TABLE count nothing.
+    LongSparseArray<int[]> getBitsSummaries(long cid, int fromMonthKey, int toMonthKey) {
+        long start = Metrics.start("DbHelper.getBitsSummaries");
+        try {
+            SQLiteDatabase database = this.getReadableDatabase();
+            Cursor cursor = database.rawQuery(
+                    "SELECT " + S_ID + "," + PRESENCE_BITS_KEY + "," + STATUS_BITS_KEY +
+                            " FROM " + BITS_TABLE_NAME + " WHERE " + C_ID + "=? AND " + MONTH_KEY + " BETWEEN ? AND ?",
+                    new String[]{String.valueOf(cid), String.valueOf(fromMonthKey), String.valueOf(toMonthKey)});
+            LongSparseArray<int[]> summaries = new LongSparseArray<>();
+            try {
+                while (cursor.moveToNext()) {
+                    long sid = cursor.getLong(0);
+                    int presenceBits = cursor.getInt(1);
+                    int statusBits = cursor.getInt(2);
+                    int[] counts = summaries.get(sid);
+                    if (counts == null) {
+                        counts = new int[2];
+                        summaries.put(sid, counts);
+                    }
+                    counts[0] += AttendanceBits.presentDays(presenceBits, statusBits);
+                    counts[1] += AttendanceBits.markedDays(presenceBits);
+                }
+            } finally {
+                cursor.close();
+            }
+            return summaries;
+        } finally {
+            Metrics.stop(start);
+        }
+    }
+
+    // Moves the archived months of a class that overlap fromDate..toDate back into
+    // STATUS_TABLE, so that a write to them finds its marks where it expects them. Runs
+    // inside the caller's transaction; from archiveHorizon on it costs nothing, and
+    // below it a month that is not archived costs one lookup.
+    private void thawStatuses(SQLiteDatabase database, long cid, long fromDate, long toDate) {
+        if (!mayBeArchived(fromDate)) return;
+        thawMonths(database, cid, AttendanceBits.monthKey(fromDate), AttendanceBits.monthKey(toDate));
+    }
+
+    // The insert trigger counts every thawed mark again, so each month's popcounts come
+    // off first. Returns the marks written.
+    private static int thawMonths(SQLiteDatabase database, long cid, int fromMonthKey, int toMonthKey) {
+        String[] months = {String.valueOf(cid), String.valueOf(fromMonthKey), String.valueOf(toMonthKey)};
+        if (DatabaseUtils.longForQuery(database, "SELECT " + ARCHIVED_MONTHS, months) == 0) return 0;
+        String inMonths = C_ID + "=? AND " + MONTH_KEY + " BETWEEN ? AND ?";
+        Cursor cursor = database.rawQuery(
+                "SELECT " + S_ID + "," + PERIOD_KEY + "," + MONTH_KEY + "," + PRESENCE_BITS_KEY + "," + STATUS_BITS_KEY +
+                        " FROM " + BITS_TABLE_NAME + " WHERE " + inMonths, months);
+        SQLiteStatement insert = database.compileStatement(
+                "INSERT INTO " + STATUS_TABLE_NAME +
+                        "(" + S_ID + "," + C_ID + "," + DATE_KEY + "," + PERIOD_KEY + "," + STATUS_KEY + ") VALUES (?,?,?,?,?)");
+        SQLiteStatement count = compileCountUpdate(database);
+        int marks = 0;
+        try {
+            while (cursor.moveToNext()) {
+                long sid = cursor.getLong(0);
+                int period = cursor.getInt(1);
+                int monthKey = cursor.getInt(2);
+                int presenceBits = cursor.getInt(3);
+                int statusBits = cursor.getInt(4);
+                updateCounts(count, cid, sid, -AttendanceBits.presentDays(presenceBits, statusBits),
+                        -AttendanceBits.markedDays(presenceBits));
+                for (int bits = presenceBits; bits != 0; bits &= bits - 1) {
+                    int dayBit = Integer.lowestOneBit(bits);
+                    insert.bindLong(1, sid);
+                    insert.bindLong(2, cid);
+                    insert.bindLong(3, AttendanceBits.epochDay(monthKey, Integer.numberOfTrailingZeros(dayBit) + 1));
+                    insert.bindLong(4, period);
+                    insert.bindString(5, (statusBits & dayBit) != 0 ? "P" : "A");
+                    insert.executeInsert();
+                    marks++;
+                }
+            }
+        } finally {
+            cursor.close();
+            insert.close();
+            count.close();
+        }
+        database.delete(BITS_TABLE_NAME, inMonths, months);
+        database.delete(ARCHIVED_MONTH_TABLE_NAME, inMonths, months);
+        return marks;
+    }
+
+    private static SQLiteStatement compileCountUpdate(SQLiteDatabase database) {
+        return database.compileStatement(
+                "UPDATE " + SUMMARY_TABLE_NAME + " SET " + PRESENT_COUNT_KEY + " = " + PRESENT_COUNT_KEY + " + ?, " +
+                        TOTAL_COUNT_KEY + " = " + TOTAL_COUNT_KEY + " + ? WHERE " + S_ID + "=? AND " + C_ID + "=?");
+    }
+
+    private static void updateCounts(SQLiteStatement count, long cid, long sid, int present, int total) {
+        count.bindLong(1, present);
+        count.bindLong(2, total);
+        count.bindLong(3, sid);
+        count.bindLong(4, cid);
+        count.executeUpdateDelete();
+    }
+
+    // Number of set bits of an integer mask below 2^32, as an SQL expression: the
+    // SWAR popcount of Integer.bitCount(), since SQLite has no function for it.
+    private static String bitCount(String mask) {
+        mask = "(" + mask + ")";
+        String count = "(" + mask + " - ((" + mask + " >> 1) & 1431655765))";
+        count = "((" + count + " & 858993459) + ((" + count + " >> 2) & 858993459))";
+        count = "((" + count + " + (" + count + " >> 4)) & 252645135)";
+        return "(((" + count + " * 16843009) & 4294967295) >> 24)";
+    }
+
+    // Hands free pages back to the file system. Rows whose parent is gone no longer
+    // exist: the version 9 upgrade dropped them and the foreign keys cascade since. The
+    // first run switches an older file to incremental auto-vacuum with one full VACUUM;
+    // later runs only release the free list. Returns the bytes reclaimed.
+    long compact() {
+        long start = Metrics.start("DbHelper.compact");
+        try {
+            SQLiteDatabase database = this.getWritableDatabase();
+            long before = databaseBytes(database);
+            if (DatabaseUtils.longForQuery(database, "PRAGMA auto_vacuum", null) != AUTO_VACUUM_INCREMENTAL) {
+                database.execSQL("PRAGMA auto_vacuum=INCREMENTAL");
+                database.execSQL("VACUUM");
+            } else if (DatabaseUtils.longForQuery(database, "PRAGMA freelist_count", null) > 0) {
+                drain(database.rawQuery("PRAGMA incremental_vacuum", null));
+            }
+            drain(database.rawQuery("PRAGMA wal_checkpoint(TRUNCATE)", null));
+            return before - databaseBytes(database);
+        } finally {
+            Metrics.stop(start);
+        }
+    }
+
+    private static long databaseBytes(SQLiteDatabase database) {
+        return DatabaseUtils.longForQuery(database, "PRAGMA page_count", null)
+                * DatabaseUtils.longForQuery(database, "PRAGMA page_size", null);
+    }
+
+    // Pragmas that do their work while being stepped, so run them to completion.
+    private static void drain(Cursor cursor) {
+        try {
+            while (cursor.moveToNext()) {
+                // Nothing to read
+            }
+        } finally {
             cursor.close();
         }
-        return status;
     }
 }
@@ -0,0 +1,98 @@
+package com.example.attendanceapp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Keeps a bounded window of rows from a keyset-paginated query. Pages are read on the
+// repository's reader threads when the visible range comes within half a page of
+// either edge of the window, and rows beyond maxItems are dropped from the far edge,
+// so memory stays flat however long the underlying table is.
+class KeysetPager<T> {
+    interface PageLoader<T> {
+        // Up to limit rows after (forward) or before the anchor, in ascending key order.
+        // A null anchor means the start of the list. Called on a repository thread.
+        List<T> loadPage(T anchor, boolean forward, int limit);
+    }
+
+    interface Listener {
+        void onWindowChanged();
+    }
+
+    private final AttendanceRepository repository;
+    private final PageLoader<T> loader;
+    private final int pageSize;
+    private final int maxItems;
+    private final Listener listener;
+    private final ArrayList<T> window = new ArrayList<>();
+    private boolean reachedStart = true;
+    private boolean reachedEnd;
+    private boolean loading;
+    private int generation;
+
+    KeysetPager(AttendanceRepository repository, PageLoader<T> loader, int pageSize, int maxItems, Listener listener) {
+        this.repository = repository;
+        this.loader = loader;
+        this.pageSize = pageSize;
+        this.maxItems = maxItems;
+        this.listener = listener;
+    }
+
+    // The live window. Callers may replace or remove rows in place; the next page is
+    // keyed off whatever rows are at the edges when it is requested.
+    ArrayList<T> getWindow() {
+        return window;
+    }
+
+    boolean isAtEnd() {
+        return reachedEnd;
+    }
+
+    // Drops the window and loads the first page again.
+    void refresh() {
+        generation++;
+        window.clear();
+        reachedStart = true;
+        reachedEnd = false;
+        loading = false;
+        load(true);
+    }
+
+    void onVisibleRange(int first, int last) {
+        int prefetch = pageSize / 2;
+        if (last >= window.size() - 1 - prefetch && !reachedEnd) {
+            load(true);
+        } else if (first <= prefetch && !reachedStart) {
+            load(false);
+        }
+    }
+
+    // One page at a time, so a trim at one edge can never race a load at the other.
+    private void load(boolean forward) {
+        if (loading) return;
+        loading = true;
+        int requested = generation;
+        T anchor = window.isEmpty() ? null : forward ? window.get(window.size() - 1) : window.get(0);
+        repository.read(() -> loader.loadPage(anchor, forward, pageSize), AttendanceRepository.callback(page -> {
+            if (requested != generation) return; // refreshed meanwhile
+            loading = false;
+            if (forward) {
+                window.addAll(page);
+                reachedEnd = page.size() < pageSize;
+                if (window.size() > maxItems) {
+                    window.subList(0, window.size() - maxItems).clear();
+                    reachedStart = false;
+                }
+            } else {
+                window.addAll(0, page);
+                reachedStart = page.size() < pageSize;
+                if (window.size() > maxItems) {
+                    window.subList(maxItems, window.size()).clear();
+                    reachedEnd = false;
+                }
+            }
+            listener.onWindowChanged();
+        }, e -> {
+            if (requested == generation) loading = false; // The next scroll tries again
+        }));
+    }
+}
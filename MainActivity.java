@@ -4,11 +4,11 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import android.content.Intent;
-import android.database.Cursor;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.MenuItem;
@@ -19,87 +19,152 @@ import android.widget.ImageButton;
 import android.widget.TextView;
 
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
+import com.google.android.material.snackbar.Snackbar;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
 
-public class MainActivity extends AppCompatActivity {
+public class MainActivity extends AppCompatActivity implements ClassListViewModel.Listener {
     FloatingActionButton fab;
     RecyclerView recyclerView;
     ClassAdapter classAdapter;
     RecyclerView.LayoutManager layoutManager;
-    ArrayList<ClassItem> classItems = new ArrayList<>();
-    DbHelper dbHelper;
+    // Class list, selection and pending deletes; kept across configuration changes.
+    ClassListViewModel model;
+    AttendanceRepository repository;
+    TextView subtitle;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        dbHelper = new DbHelper(this);
+        repository = AttendanceRepository.getInstance(this);
+        model = new ViewModelProvider(this).get(ClassListViewModel.class);
         fab = findViewById(R.id.fab_main);
         fab.setOnClickListener(v -> showDialog());
 
-        loadData();
         TextView title = findViewById(R.id.title_toolbar);
-        TextView subtitle = findViewById(R.id.subtitle_toolbar);
-        subtitle.setText("Attendance App");
+        subtitle = findViewById(R.id.subtitle_toolbar);
+        updateSubtitle();
         title.setText("PRESENT MA'AM");
+        title.setOnLongClickListener(v -> {
+            startActivity(new Intent(this, MetricsActivity.class)); // Hidden debug screen
+            return true;
+        });
+        Toolbar toolbar = findViewById(R.id.toolbar);
+        toolbar.inflateMenu(R.menu.main_menu);
+        toolbar.setOnMenuItemClickListener(this::onMenuItemClick);
         recyclerView = findViewById(R.id.recyclerView);
         recyclerView.setHasFixedSize(true);
         layoutManager = new LinearLayoutManager(this);
         recyclerView.setLayoutManager(layoutManager);
-        classAdapter = new ClassAdapter(this, classItems);
+        classAdapter = new ClassAdapter(this);
         recyclerView.setAdapter(classAdapter);
-        classAdapter.setOnItemClickListener(position -> gotoItemActivity(position));
+        classAdapter.setOnItemClickListener(cid -> gotoItemActivity(cid));
+        loadData();
+        if (model.getPendingDeletes() > 0) showUndo(model.getPendingDeletes());
     }
 
     private void loadData() {
-        Cursor cursor = dbHelper.getClassTable();
-
-        classItems.clear();
-        while (cursor.moveToNext()) {
-            int columnIndex = cursor.getColumnIndex(DbHelper.C_ID);
-            long id = cursor.getLong(columnIndex);
-            String className = cursor.getString(cursor.getColumnIndex(DbHelper.CLASS_NAME_KEY));
-            String subjectName = cursor.getString(cursor.getColumnIndex(DbHelper.SUBJECT_NAME_KEY));
-            classItems.add(new ClassItem(id, className, subjectName));
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                LinearLayoutManager linearLayoutManager = (LinearLayoutManager) layoutManager;
+                model.onVisibleRange(linearLayoutManager.findFirstVisibleItemPosition(),
+                        linearLayoutManager.findLastVisibleItemPosition());
+            }
+        });
+        model.setListener(this);
+        if (!model.load(repository)) onClassesChanged(); // Recreated: the list is already in memory
+    }
+
+    @Override
+    public void onClassesChanged() {
+        updateSubtitle();
+        classAdapter.submitList(new ArrayList<>(model.getClasses()));
+    }
+
+    private void updateSubtitle() {
+        int selected = model.getSelectedCount();
+        subtitle.setText(selected == 0 ? "Attendance App" : selected + " selected");
+    }
+
+    private boolean onMenuItemClick(MenuItem menuItem) {
+        if (menuItem.getItemId() == R.id.delete_selected) {
+            if (model.getSelectedCount() > 0) deleteClasses(model.getSelection());
+            return true;
         }
-        cursor.close();
+        return false;
     }
 
-    private void gotoItemActivity(int position) {
+    private void gotoItemActivity(long cid) {
+        if (model.getSelectedCount() > 0) {
+            model.toggleSelection(cid);
+            return;
+        }
+        ClassItem item = model.findClass(cid);
+        if (item == null) return;
         Intent intent = new Intent(this, StudentActivity.class);
-        intent.putExtra("className", classItems.get(position).getClassName());
-        intent.putExtra("subjectName", classItems.get(position).getSubjectName());
-        intent.putExtra("cid", classItems.get(position).getCid());
+        intent.putExtra("className", item.getClassName());
+        intent.putExtra("subjectName", item.getSubjectName());
+        intent.putExtra("cid", item.getCid());
         startActivity(intent);
     }
 
     private void showDialog() {
         MyDialog dialog = new MyDialog();
         dialog.show(getSupportFragmentManager(), MyDialog.CLASS_ADD_DIALOG);
-        dialog.setListener((className, subjectName) -> addClass(className, subjectName));
-    }
-
-    private void addClass(String className, String subjectName) {
-        long cid = dbHelper.addClass(className, subjectName);
-        classItems.add(new ClassItem(cid, className, subjectName));
-        classAdapter.notifyDataSetChanged();
+        dialog.setListener((className, subjectName) -> model.addClass(className, subjectName));
     }
 
     @Override
     public boolean onContextItemSelected(@NonNull MenuItem item) {
         switch (item.getItemId()) {
             case 1:
-                deleteClass(item.getGroupId());
+                deleteClasses(Collections.singleton(classAdapter.getContextMenuCid()));
+                return true;
+            case 2:
+                model.toggleSelection(classAdapter.getContextMenuCid());
                 return true;
         }
         return super.onContextItemSelected(item);
     }
 
-    private void deleteClass(int position) {
-        dbHelper.deleteClass(classItems.get(position).getCid());
-        classItems.remove(position);
-        classAdapter.notifyItemRemoved(position);
+    private void deleteClasses(Set<Long> cids) {
+        int count = model.deleteClasses(cids);
+        if (count == 0) return; // Already gone
+        showUndo(count);
+    }
+
+    private void showUndo(int count) {
+        Snackbar.make(recyclerView, count == 1 ? "Class deleted" : count + " classes deleted", Snackbar.LENGTH_LONG)
+                .setAction("Undo", v -> model.undoDeletes())
+                .addCallback(new Snackbar.Callback() {
+                    @Override
+                    public void onDismissed(Snackbar snackbar, int event) {
+                        // A newer delete's snackbar replaced this one, and committed this batch
+                        // itself; the batch held now is the newer one, still undoable. A rotation
+                        // detaches the snackbar too, and the recreated activity shows it again.
+                        if (event != DISMISS_EVENT_ACTION && event != DISMISS_EVENT_CONSECUTIVE
+                                && !isChangingConfigurations()) {
+                            model.commitDeletes();
+                        }
+                    }
+                })
+                .show();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (!isChangingConfigurations()) model.commitDeletes(); // A rotation keeps them undoable
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        model.setListener(null);
     }
 }
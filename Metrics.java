@@ -0,0 +1,187 @@
+package com.example.attendanceapp;
+
+import android.os.SystemClock;
+import android.os.Trace;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Latency histograms for the hot paths, recorded with atomics only, and mirrored as
+// android.os.Trace sections so they line up with systrace/Perfetto captures. Off by
+// default: start() then costs one volatile read and stop() one comparison.
+//
+//     long start = Metrics.start("DbHelper.saveStatuses");
+//     try { ... } finally { Metrics.stop(start); }
+//
+// Sections nest per thread like Trace sections do, and must end on the thread that
+// started them. A query returning a Cursor only runs as its rows are stepped, so it is
+// timed by the caller that reads it rather than by the DbHelper method. Events that
+// have no duration, such as cache hits, are counted with count().
+final class Metrics {
+    private static final int MAX_DEPTH = 32;
+
+    private static volatile boolean enabled;
+    private static final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Sections> sections = new ThreadLocal<Sections>() {
+        @Override
+        protected Sections initialValue() {
+            return new Sections();
+        }
+    };
+
+    private Metrics() {
+    }
+
+    static boolean isEnabled() {
+        return enabled;
+    }
+
+    static void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    // Opens a section; returns a token for stop(), 0 when metrics are off.
+    static long start(String name) {
+        if (!enabled) return 0;
+        Sections open = sections.get();
+        if (open.depth == MAX_DEPTH) return 0;
+        open.histograms[open.depth++] = histogram(name);
+        Trace.beginSection(name);
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    static void stop(long start) {
+        if (start == 0) return;
+        long elapsed = SystemClock.elapsedRealtimeNanos() - start;
+        Trace.endSection();
+        Sections open = sections.get();
+        Histogram histogram = open.histograms[--open.depth];
+        open.histograms[open.depth] = null;
+        histogram.record(elapsed);
+    }
+
+    // For spans that cross threads or frames, where no section can be open throughout.
+    static void record(String name, long nanos) {
+        if (enabled) histogram(name).record(nanos);
+    }
+
+    static void count(String name) {
+        if (!enabled) return;
+        AtomicLong counter = counters.get(name);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = counters.putIfAbsent(name, created);
+            if (counter == null) counter = created;
+        }
+        counter.incrementAndGet();
+    }
+
+    static void reset() {
+        histograms.clear();
+        counters.clear();
+    }
+
+    // One line per histogram: count, mean, p50/p90/p99 and max, in microseconds. Then
+    // one line per counter.
+    static String report() {
+        ArrayList<String> names = new ArrayList<>(histograms.keySet());
+        Collections.sort(names);
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.US, "%-36s %8s %9s %9s %9s %9s %9s%n",
+                "name", "count", "mean_us", "p50_us", "p90_us", "p99_us", "max_us"));
+        for (String name : names) {
+            Histogram histogram = histograms.get(name);
+            long count = histogram.count.get();
+            if (count == 0) continue;
+            report.append(String.format(Locale.US, "%-36s %8d %9.1f %9.1f %9.1f %9.1f %9.1f%n", name, count,
+                    histogram.total.get() / 1000.0 / count, histogram.percentile(0.50) / 1000.0,
+                    histogram.percentile(0.90) / 1000.0, histogram.percentile(0.99) / 1000.0,
+                    histogram.max.get() / 1000.0));
+        }
+        names = new ArrayList<>(counters.keySet());
+        Collections.sort(names);
+        for (String name : names) {
+            report.append(String.format(Locale.US, "%-36s %8d%n", name, counters.get(name).get()));
+        }
+        return report.toString();
+    }
+
+    static void dump(File file) throws IOException {
+        try (Writer writer = new FileWriter(file)) {
+            writer.write(report());
+        }
+    }
+
+    private static Histogram histogram(String name) {
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            Histogram created = new Histogram();
+            histogram = histograms.putIfAbsent(name, created);
+            if (histogram == null) histogram = created;
+        }
+        return histogram;
+    }
+
+    private static final class Sections {
+        final Histogram[] histograms = new Histogram[MAX_DEPTH];
+        int depth;
+    }
+
+    // Log-linear buckets in the style of HdrHistogram: each power of two is split into
+    // eight, so a value is known to within 12.5% across the whole long range.
+    static final class Histogram {
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+        final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong total = new AtomicLong();
+        final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            counts.incrementAndGet(bucket(nanos));
+            count.incrementAndGet();
+            total.addAndGet(nanos);
+            long previous;
+            while (nanos > (previous = max.get()) && !max.compareAndSet(previous, nanos)) {
+                // Retry until this value or a larger one is the max
+            }
+        }
+
+        // Lower bound of the bucket holding the given fraction of recorded values.
+        long percentile(double fraction) {
+            long target = (long) Math.ceil(count.get() * fraction);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= target && seen > 0) return lowerBound(i);
+            }
+            return max.get();
+        }
+
+        static int bucket(long value) {
+            if (value < SUB_BUCKETS) return (int) value;
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int mantissa = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + mantissa;
+        }
+
+        static long lowerBound(int bucket) {
+            if (bucket < SUB_BUCKETS) return bucket;
+            int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+            long mantissa = bucket % SUB_BUCKETS;
+            return (SUB_BUCKETS + mantissa) << (exponent - SUB_BUCKET_BITS);
+        }
+    }
+}
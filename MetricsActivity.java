@@ -0,0 +1,58 @@
+package com.example.attendanceapp;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.SwitchCompat;
+
+import java.io.File;
+
+// Debug screen for Metrics, opened by long-pressing the title on the class list.
+// Shows the current histograms, toggles recording, and dumps the report to the app's
+// external files directory for adb pull. The toggle is kept across restarts.
+public class MetricsActivity extends AppCompatActivity {
+    private static final String PREFS_NAME = "metrics";
+    private static final String RECORDING_KEY = "recording";
+
+    private TextView report;
+
+    static boolean isRecording(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, MODE_PRIVATE).getBoolean(RECORDING_KEY, false);
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+
+        report = findViewById(R.id.metrics_report);
+        SwitchCompat enabled = findViewById(R.id.metrics_enabled);
+        enabled.setChecked(Metrics.isEnabled());
+        enabled.setOnCheckedChangeListener((button, checked) -> {
+            Metrics.setEnabled(checked);
+            getSharedPreferences(PREFS_NAME, MODE_PRIVATE).edit().putBoolean(RECORDING_KEY, checked).apply();
+        });
+        findViewById(R.id.metrics_refresh).setOnClickListener(v -> showReport());
+        findViewById(R.id.metrics_reset).setOnClickListener(v -> {
+            Metrics.reset();
+            showReport();
+        });
+        findViewById(R.id.metrics_dump).setOnClickListener(v -> dumpReport());
+        showReport();
+    }
+
+    private void showReport() {
+        report.setText(Metrics.report());
+    }
+
+    private void dumpReport() {
+        File file = new File(getExternalFilesDir(null), "metrics-" + System.currentTimeMillis() + ".txt");
+        AttendanceRepository.getInstance(this).read(() -> {
+            Metrics.dump(file);
+            return file;
+        }, dumped -> Toast.makeText(this, "Written to " + dumped.getPath(), Toast.LENGTH_LONG).show());
+    }
+}
@@ -11,9 +11,15 @@ import androidx.annotation.Nullable;
 import androidx.fragment.app.DialogFragment;
 
 import java.util.Calendar;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
 
 public class MyCalendar extends DialogFragment {
+    public static final int MAX_PERIODS = 8;
+
     Calendar calendar = Calendar.getInstance();
+    // Lecture of the selected date; together they name one attendance sheet.
+    private int period = DbHelper.FIRST_PERIOD;
 
     public interface OnCalendarOkClickListener {
         void onClick(int year, int month, int day);
@@ -54,4 +60,56 @@ public class MyCalendar extends DialogFragment {
     public String getDate() {
         return DateFormat.format("dd.MM.yyyy", calendar).toString();
     }
+
+    public int getPeriod() {
+        return period;
+    }
+
+    public void setPeriod(int period) {
+        this.period = period;
+    }
+
+    // The selected sheet, e.g. "05.03.2024 | Period 2".
+    public String getSession() {
+        return getDate() + " | " + formatPeriod(period);
+    }
+
+    public static String formatPeriod(int period) {
+        return "Period " + period;
+    }
+
+    // Days since 1970-01-01 for the selected date, as stored in STATUS_TABLE.
+    public long getEpochDay() {
+        return toEpochDay(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH), calendar.get(Calendar.DAY_OF_MONTH));
+    }
+
+    // Epoch day of the first day of the selected date's month.
+    public long getMonthStartEpochDay() {
+        return toEpochDay(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH), 1);
+    }
+
+    public void setEpochDay(long epochDay) {
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        utc.setTimeInMillis(TimeUnit.DAYS.toMillis(epochDay));
+        setDate(utc.get(Calendar.YEAR), utc.get(Calendar.MONTH), utc.get(Calendar.DAY_OF_MONTH));
+    }
+
+    // Latest date the picker allows.
+    public static long todayEpochDay() {
+        Calendar today = Calendar.getInstance();
+        return toEpochDay(today.get(Calendar.YEAR), today.get(Calendar.MONTH), today.get(Calendar.DAY_OF_MONTH));
+    }
+
+    public static long toEpochDay(int year, int month, int day) {
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        utc.clear();
+        utc.set(year, month, day);
+        return TimeUnit.MILLISECONDS.toDays(utc.getTimeInMillis());
+    }
+
+    public static String formatEpochDay(long epochDay) {
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        utc.setTimeInMillis(TimeUnit.DAYS.toMillis(epochDay));
+        return DateFormat.format("dd.MM.yyyy", utc).toString();
+    }
 }
@@ -0,0 +1,212 @@
+package com.example.attendanceapp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+// Streaming RFC 4180 tokenizer for roster files. Reads through its own char buffer,
+// strips a leading byte order mark, and keeps each record's fields in one reusable
+// row buffer, so filtering on a column or parsing an integer column allocates nothing.
+// Spaces around a field, which hand-edited rosters are full of, are dropped when the
+// field is read; spaces inside quotes are part of the field.
+class RosterCsvReader implements Closeable {
+    static final long INVALID_INT = Long.MIN_VALUE;
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private boolean started;
+
+    private char[] row = new char[256];
+    private int rowLength;
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private int fieldCount;
+    // Trailing spaces are trimmed back to here: the field's start, or its closing quote.
+    private int keepTo;
+    private int line = 1;
+    private int rowLine;
+    private String rowError;
+
+    RosterCsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    // Advances to the next record. Returns false once the input is exhausted.
+    boolean nextRow() throws IOException {
+        if (!started) {
+            started = true;
+            if (peek() == BYTE_ORDER_MARK) read();
+        }
+        if (peek() == -1) return false;
+
+        rowLength = 0;
+        fieldCount = 0;
+        rowLine = line;
+        rowError = null;
+        startField();
+        boolean quoted = false;
+        while (true) {
+            int c = read();
+            if (quoted) {
+                if (c == -1) {
+                    rowError = "unterminated quoted field";
+                    keepTo = rowLength;
+                    endField();
+                    return true;
+                } else if (c == '"') {
+                    if (peek() == '"') {
+                        read();
+                        append('"');
+                    } else {
+                        quoted = false;
+                        keepTo = rowLength;
+                    }
+                } else {
+                    if (c == '\n') line++;
+                    append((char) c);
+                }
+            } else if (c == -1) {
+                endField();
+                return true;
+            } else if (c == '"' && isFieldBlank()) {
+                rowLength = fieldStarts[fieldCount]; // drop spaces before the opening quote
+                keepTo = rowLength;
+                quoted = true;
+            } else if (c == ',') {
+                endField();
+                startField();
+            } else if (c == '\r' || c == '\n') {
+                if (c == '\r' && peek() == '\n') read();
+                line++;
+                endField();
+                return true;
+            } else {
+                append((char) c);
+            }
+        }
+    }
+
+    int getFieldCount() {
+        return fieldCount;
+    }
+
+    // Line on which the current record starts (1-based).
+    int getLineNumber() {
+        return rowLine;
+    }
+
+    // Null unless the current record is malformed.
+    String getRowError() {
+        return rowError;
+    }
+
+    String getString(int column) {
+        return new String(row, fieldStarts[column], fieldEnds[column] - fieldStarts[column]);
+    }
+
+    boolean fieldEqualsIgnoreCase(int column, String value) {
+        int start = fieldStarts[column];
+        int length = fieldEnds[column] - start;
+        if (length != value.length()) return false;
+        for (int i = 0; i < length; i++) {
+            char a = row[start + i];
+            char b = value.charAt(i);
+            if (a != b && Character.toUpperCase(a) != Character.toUpperCase(b)
+                    && Character.toLowerCase(a) != Character.toLowerCase(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Parses a decimal int column in place; INVALID_INT if it is empty, not a number,
+    // or out of int range.
+    long getInt(int column) {
+        int start = fieldStarts[column];
+        int end = fieldEnds[column];
+        if (start == end) return INVALID_INT;
+        boolean negative = row[start] == '-';
+        if (negative || row[start] == '+') start++;
+        if (start == end) return INVALID_INT;
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            char c = row[i];
+            if (c < '0' || c > '9') return INVALID_INT;
+            value = value * 10 + (c - '0');
+            if (value > (long) Integer.MAX_VALUE + 1) return INVALID_INT;
+        }
+        value = negative ? -value : value;
+        return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? INVALID_INT : value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private boolean isFieldBlank() {
+        for (int i = fieldStarts[fieldCount]; i < rowLength; i++) {
+            if (row[i] != ' ') return false;
+        }
+        return true;
+    }
+
+    private void startField() {
+        if (fieldCount == fieldStarts.length) {
+            int[] starts = new int[fieldCount * 2];
+            int[] ends = new int[fieldCount * 2];
+            System.arraycopy(fieldStarts, 0, starts, 0, fieldCount);
+            System.arraycopy(fieldEnds, 0, ends, 0, fieldCount);
+            fieldStarts = starts;
+            fieldEnds = ends;
+        }
+        fieldStarts[fieldCount] = rowLength;
+        keepTo = rowLength;
+    }
+
+    // Trims an unquoted field's spaces, and a quoted field's spaces after the closing
+    // quote; a quoted field's spaces before the opening quote were never appended.
+    private void endField() {
+        int start = fieldStarts[fieldCount];
+        int end = rowLength;
+        while (end > keepTo && row[end - 1] == ' ') end--;
+        if (keepTo == start) {
+            while (start < end && row[start] == ' ') start++;
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldCount++;
+    }
+
+    private void append(char c) {
+        if (rowLength == row.length) {
+            char[] grown = new char[row.length * 2];
+            System.arraycopy(row, 0, grown, 0, rowLength);
+            row = grown;
+        }
+        row[rowLength++] = c;
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) return -1;
+        return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) return -1;
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        int read = reader.read(buffer, 0, buffer.length);
+        if (read <= 0) return false;
+        position = 0;
+        limit = read;
+        return true;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.attendanceapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+
+// Enrolls the students of the bundled students.csv in one class. The file is only
+// parsed when its content hash differs from the one recorded at the last import, so
+// opening a class is normally a plain database read.
+class RosterImporter {
+    private static final String TAG = "RosterImporter";
+    private static final int CLASS_COLUMN = 0;
+    private static final int ROLL_COLUMN = 1;
+    private static final int NAME_COLUMN = 2;
+    private static final int FIRST_SUBJECT_COLUMN = 3;
+
+    private final Context context;
+    private final DbHelper dbHelper;
+
+    RosterImporter(Context context, DbHelper dbHelper) {
+        this.context = context;
+        this.dbHelper = dbHelper;
+    }
+
+    // Returns true if the roster was (re)imported, false if the file was unchanged.
+    boolean importIfChanged(long cid, String className, String subjectName) throws IOException {
+        long start = Metrics.start("RosterImporter.importIfChanged");
+        try {
+            String hash = hashRoster();
+            if (hash.equals(dbHelper.getRosterHash(cid))) {
+                return false;
+            }
+            dbHelper.importRoster(cid, readRoster(className, subjectName), hash);
+            return true;
+        } finally {
+            Metrics.stop(start);
+        }
+    }
+
+    private ArrayList<StudentItem> readRoster(String className, String subjectName) throws IOException {
+        ArrayList<StudentItem> roster = new ArrayList<>();
+        String wantedClass = className.trim();
+        String wantedSubject = subjectName.trim();
+        long start = Metrics.start("RosterImporter.readRoster");
+        try (RosterCsvReader csv = new RosterCsvReader(
+                new InputStreamReader(openRoster(), StandardCharsets.UTF_8))) {
+            while (csv.nextRow()) {
+                if (csv.getRowError() != null) {
+                    Log.w(TAG, "students.csv line " + csv.getLineNumber() + ": " + csv.getRowError());
+                    continue;
+                }
+                if (csv.getFieldCount() <= FIRST_SUBJECT_COLUMN) continue;
+                if (!csv.fieldEqualsIgnoreCase(CLASS_COLUMN, wantedClass)) continue;
+                if (!hasSubject(csv, wantedSubject)) continue;
+
+                long roll = csv.getInt(ROLL_COLUMN);
+                if (roll == RosterCsvReader.INVALID_INT) {
+                    Log.w(TAG, "students.csv line " + csv.getLineNumber() + ": invalid roll number");
+                    continue; // Skip this entry if roll number is invalid
+                }
+                roster.add(new StudentItem(0, (int) roll, csv.getString(NAME_COLUMN)));
+            }
+        } finally {
+            Metrics.stop(start);
+        }
+        return roster;
+    }
+
+    private static boolean hasSubject(RosterCsvReader csv, String subjectName) {
+        for (int i = FIRST_SUBJECT_COLUMN; i < csv.getFieldCount(); i++) {
+            if (csv.fieldEqualsIgnoreCase(i, subjectName)) return true;
+        }
+        return false;
+    }
+
+    private String hashRoster() throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        byte[] buffer = new byte[8192];
+        try (InputStream inputStream = openRoster()) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private InputStream openRoster() {
+        return context.getResources().openRawResource(R.raw.students);
+    }
+}
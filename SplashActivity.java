@@ -1,23 +1,41 @@
 package com.example.attendanceapp;
 import android.content.Intent;
+import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
 import androidx.appcompat.app.AppCompatActivity;
-import com.example.attendanceapp.MainActivity;
 
+// Shown while the database is opened (running any upgrade) and the first page of
+// classes is read into the repository cache, then dismissed straight away, so
+// MainActivity's list comes up without touching the disk.
 public class SplashActivity extends AppCompatActivity {
+    // Moves on even if the warm-up is stuck behind a long upgrade.
+    private static final long MAX_SPLASH_MS = 5000;
 
-    private static final int SPLASH_SCREEN_DURATION = 2000; // 2 seconds
+    private boolean done;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_splash);
-        // Delay for 2 seconds and then start MainActivity
-        new Handler().postDelayed(() -> {
-            Intent intent = new Intent(SplashActivity.this, LoginActivity.class);
-            startActivity(intent);
-            finish(); // Close SplashActivity so it cannot be returned to
-        }, SPLASH_SCREEN_DURATION);
+        AttendanceRepository.getInstance(this).warmUp(ClassListViewModel.PAGE_SIZE,
+                AttendanceRepository.callback(ready -> proceed(), e -> proceed()));
+        new Handler(Looper.getMainLooper()).postDelayed(this::proceed, MAX_SPLASH_MS);
+    }
+
+    private void proceed() {
+        if (done || isFinishing()) return;
+        done = true;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            // Process fork to warm-up done, for the metrics screen
+            Metrics.record("SplashActivity.coldStart",
+                    (SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime()) * 1_000_000);
+        }
+        Intent intent = new Intent(SplashActivity.this, LoginActivity.class);
+        startActivity(intent);
+        finish(); // Close SplashActivity so it cannot be returned to
     }
 }
@@ -0,0 +1,145 @@
+package com.example.attendanceapp;
+
+import android.util.LongSparseArray;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+// Small ring buffer of one class's marks for the dates around the one on screen, all
+// in the selected period. Every load prefetches the neighbouring days in the
+// background, so stepping back and forth through a week is served from memory. Used
+// from the main thread only; any write to the class's marks must call invalidate(),
+// and marks queued for a sheet that is no longer on screen go through hold(). Hits and
+// misses are counted in Metrics, for the hit rate on the metrics screen.
+class StatusPrefetcher {
+    private static final int SLOTS = 8;
+
+    private final AttendanceRepository repository;
+    private final long cid;
+    private final long[] dates = new long[SLOTS];
+    private final ArrayList<LongSparseArray<String>> statuses = new ArrayList<>(SLOTS);
+    private final HashSet<Long> inFlight = new HashSet<>();
+    // Marks queued for writing, by AttendanceCache.statusKey(); see hold().
+    private final HashMap<String, LongSparseArray<String>> held = new HashMap<>();
+    private int period = DbHelper.FIRST_PERIOD;
+    private int next;
+    private int generation;
+
+    StatusPrefetcher(AttendanceRepository repository, long cid) {
+        this.repository = repository;
+        this.cid = cid;
+        for (int i = 0; i < SLOTS; i++) {
+            statuses.add(null);
+        }
+    }
+
+    // Buffered dates belong to one period, so switching drops them.
+    void setPeriod(int period) {
+        if (period == this.period) return;
+        this.period = period;
+        invalidate();
+    }
+
+    // Delivers the marks of a date as a copy the caller may edit, then prefetches the
+    // day before and, up to lastDate, the day after.
+    void load(long date, long lastDate, AttendanceRepository.Callback<LongSparseArray<String>> callback) {
+        int slot = find(date);
+        if (slot >= 0) {
+            Metrics.count("StatusPrefetcher.hit");
+            callback.onResult(statuses.get(slot).clone());
+        } else {
+            Metrics.count("StatusPrefetcher.miss");
+            int requested = generation;
+            repository.loadStatuses(cid, date, period, AttendanceRepository.callback(result -> {
+                if (requested != generation) {
+                    load(date, lastDate, callback); // Read before a write landed: read again
+                    return;
+                }
+                mergeHeld(date, result);
+                store(date, result.clone());
+                callback.onResult(result);
+            }, callback::onError));
+        }
+        prefetch(date - 1);
+        if (date + 1 <= lastDate) prefetch(date + 1);
+    }
+
+    // Marks of a sheet queued for writing when another sheet is shown. Until release()
+    // they are merged into the date's slot and into whatever is read for it, since that
+    // read may run before the write has committed.
+    void hold(long date, int period, LongSparseArray<String> marks) {
+        if (marks.size() == 0) return;
+        String key = AttendanceCache.statusKey(cid, date, period);
+        LongSparseArray<String> heldMarks = held.get(key);
+        if (heldMarks == null) {
+            heldMarks = new LongSparseArray<>();
+            held.put(key, heldMarks);
+        }
+        putAll(heldMarks, marks);
+        int slot = period == this.period ? find(date) : -1;
+        if (slot >= 0) putAll(statuses.get(slot), marks);
+    }
+
+    // The write of held marks committed or failed. Marks held again since stay.
+    void release(long date, int period, LongSparseArray<String> marks) {
+        String key = AttendanceCache.statusKey(cid, date, period);
+        LongSparseArray<String> heldMarks = held.get(key);
+        if (heldMarks == null) return;
+        for (int i = 0; i < marks.size(); i++) {
+            if (marks.valueAt(i).equals(heldMarks.get(marks.keyAt(i)))) heldMarks.remove(marks.keyAt(i));
+        }
+        if (heldMarks.size() == 0) held.remove(key);
+    }
+
+    // Drops every buffered date, including loads still in flight. Held marks stay.
+    void invalidate() {
+        generation++;
+        inFlight.clear();
+        for (int i = 0; i < SLOTS; i++) {
+            statuses.set(i, null);
+        }
+    }
+
+    private void prefetch(long date) {
+        if (find(date) >= 0 || !inFlight.add(date)) return;
+        int requested = generation;
+        repository.loadStatuses(cid, date, period, AttendanceRepository.callback(result -> {
+            if (requested != generation) return;
+            inFlight.remove(date);
+            mergeHeld(date, result);
+            store(date, result);
+        }, e -> {
+            if (requested == generation) inFlight.remove(date);
+        }));
+    }
+
+    private int find(long date) {
+        for (int i = 0; i < SLOTS; i++) {
+            if (statuses.get(i) != null && dates[i] == date) return i;
+        }
+        return -1;
+    }
+
+    private void mergeHeld(long date, LongSparseArray<String> marks) {
+        LongSparseArray<String> heldMarks = held.get(AttendanceCache.statusKey(cid, date, period));
+        if (heldMarks != null) putAll(marks, heldMarks);
+    }
+
+    private static void putAll(LongSparseArray<String> into, LongSparseArray<String> marks) {
+        for (int i = 0; i < marks.size(); i++) {
+            into.put(marks.keyAt(i), marks.valueAt(i));
+        }
+    }
+
+    // Replaces the date's slot if it has one, otherwise the oldest slot.
+    private void store(long date, LongSparseArray<String> marks) {
+        int slot = find(date);
+        if (slot < 0) {
+            slot = next;
+            next = (next + 1) % SLOTS;
+        }
+        dates[slot] = date;
+        statuses.set(slot, marks);
+    }
+}
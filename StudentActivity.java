@@ -1,43 +1,43 @@
 package com.example.attendanceapp;
-import android.provider.MediaStore;
-import android.content.ContentValues;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.Manifest;
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.OutputStream;
-import android.net.Uri;
 import android.os.Bundle;
-import android.os.Environment;
+import android.os.SystemClock;
 import android.view.MenuItem;
+import android.view.View;
+import android.view.ViewTreeObserver;
 import android.widget.Button;
 import android.widget.ImageButton;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import com.google.android.material.snackbar.Snackbar;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
 
-public class StudentActivity extends AppCompatActivity {
+public class StudentActivity extends AppCompatActivity implements StudentViewModel.Listener {
     private TextView title, subtitle;
     private ImageButton save;
+    private Button downloadButton;
     private Toolbar toolbar;
     private String className, subjectName;
     private long cid;
     private RecyclerView recyclerView;
     private StudentAdapter adapter;
-    private ArrayList<StudentItem> studentItems = new ArrayList<>();
-    private DbHelper dbHelper;
+    // Roster, sheet, unsaved marks and selection; kept across configuration changes.
+    private StudentViewModel model;
+    private AttendanceRepository repository;
+    // Mirrors the model's date and period for the picker and the toolbar.
     private MyCalendar calendar;
 
     private static final int REQUEST_PERMISSION_WRITE_EXTERNAL_STORAGE = 1;
@@ -45,11 +45,13 @@ public class StudentActivity extends AppCompatActivity {
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        long createStart = SystemClock.elapsedRealtimeNanos();
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_student);
+        recordFirstFrame(createStart);
 
-        // Initialize database and calendar
-        dbHelper = new DbHelper(this);
+        // Initialize repository and calendar
+        repository = AttendanceRepository.getInstance(this);
         calendar = new MyCalendar();
 
         // Retrieve data from intent
@@ -64,21 +66,41 @@ public class StudentActivity extends AppCompatActivity {
             return;
         }
 
+        // A recreated activity finds everything already loaded and only rebinds
+        model = new ViewModelProvider(this).get(StudentViewModel.class);
+        boolean loading = model.load(repository, cid, className, subjectName);
+        calendar.setEpochDay(model.getDate());
+        calendar.setPeriod(model.getPeriod());
         setupToolbar();
         setupRecyclerView();
         setupButtons();
-        loadStudentsFromCSV(); // Load students from CSV
-        loadStatusData();
+        model.setListener(this);
+        if (!loading) submitStudents();
+        if (model.getPendingDeletes() > 0) showUndo(model.getPendingDeletes());
 
         // Request permissions
-        requestPermissions();
+        if (savedInstanceState == null) requestPermissions();
+    }
+
+    // onCreate to the first frame being drawn, which no single Trace section can span.
+    private void recordFirstFrame(long createStart) {
+        if (!Metrics.isEnabled()) return;
+        View content = findViewById(android.R.id.content);
+        content.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                content.getViewTreeObserver().removeOnPreDrawListener(this);
+                Metrics.record("StudentActivity.firstFrame", SystemClock.elapsedRealtimeNanos() - createStart);
+                return true;
+            }
+        });
     }
 
     private void setupToolbar() {
         toolbar = findViewById(R.id.toolbar);
         title = findViewById(R.id.title_toolbar);
         subtitle = findViewById(R.id.subtitle_toolbar);
-        subtitle.setText(calendar.getDate());
+        updateSubtitle();
         title.setText(className + " | " + subjectName);
         toolbar.inflateMenu(R.menu.student_menu);
         toolbar.setOnMenuItemClickListener(this::onMenuItemClick);
@@ -87,80 +109,145 @@ public class StudentActivity extends AppCompatActivity {
     private void setupRecyclerView() {
         recyclerView = findViewById(R.id.student_recycler);
         recyclerView.setHasFixedSize(true);
-        recyclerView.setLayoutManager(new LinearLayoutManager(this));
-        adapter = new StudentAdapter(this, studentItems);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        recyclerView.setLayoutManager(layoutManager);
+        adapter = new StudentAdapter(this);
         recyclerView.setAdapter(adapter);
-        adapter.setOnItemClickListener(this::changeStatus);
+        adapter.setOnItemClickListener(model::changeStatus);
+
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                model.onVisibleRange(layoutManager.findFirstVisibleItemPosition(),
+                        layoutManager.findLastVisibleItemPosition());
+            }
+        });
     }
 
     private void setupButtons() {
         save = findViewById(R.id.save);
         save.setOnClickListener(v -> saveStatus());
 
-        Button downloadButton = findViewById(R.id.download_button);
+        downloadButton = findViewById(R.id.download_button);
         downloadButton.setOnClickListener(v -> downloadAttendanceData());
+        showExportState(); // An export started before a rotation may still be running
     }
 
+    // Save also marks everyone still unmarked absent, then shows the completed sheet.
     private void saveStatus() {
-        for (StudentItem studentItem : studentItems) {
-            String status = studentItem.getStatus();
-            if (status.isEmpty()) status = "A"; // Default to Absent if no status
+        model.saveMarks(true);
+    }
 
-            long value = dbHelper.addStatus(studentItem.getSid(), cid, calendar.getDate(), status);
-            if (value == -1) {
-                dbHelper.updateStatus(studentItem.getSid(), calendar.getDate(), status);
-            }
-        }
+    // Fills the selected period from the selected date to a second picked date, for
+    // holidays and trips.
+    private void showFillRange() {
+        MyCalendar rangeEnd = new MyCalendar();
+        rangeEnd.setOnCalendarOkClickListener((year, month, day) -> {
+            long from = model.getDate();
+            long to = MyCalendar.toEpochDay(year, month, day);
+            new AlertDialog.Builder(this)
+                    .setTitle(MyCalendar.formatEpochDay(Math.min(from, to)) + " - "
+                            + MyCalendar.formatEpochDay(Math.max(from, to)) + " | " + MyCalendar.formatPeriod(model.getPeriod()))
+                    .setItems(new String[]{"Mark Present", "Mark Absent"}, (dialog, which) ->
+                            model.fillRange(Math.min(from, to), Math.max(from, to), which == 0 ? "P" : "A"))
+                    .show();
+        });
+        rangeEnd.show(getSupportFragmentManager(), "");
+    }
+
+    @Override
+    public void onSheetChanged() {
+        updateSubtitle();
+        submitStudents();
+    }
+
+    @Override
+    public void onSaved() {
         Toast.makeText(this, "Saved", Toast.LENGTH_LONG).show();
     }
 
-    private void loadStatusData() {
-        for (StudentItem studentItem : studentItems) {
-            String status = dbHelper.getStatus(studentItem.getSid(), calendar.getDate());
-            studentItem.setStatus(status != null ? status : ""); // Set status or empty
-        }
-        adapter.notifyDataSetChanged();
-    }
-
-    private void loadStudentsFromCSV() {
-        InputStream inputStream = getResources().openRawResource(R.raw.students); // Ensure your CSV is correct
-        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-        String line;
-        try {
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-
-                // Ensure you are getting at least 3 parts
-                if (parts.length >= 3) {
-                    int roll;
-                    try {
-                        roll = Integer.parseInt(parts[1].trim()); // Parse roll number
-                    } catch (NumberFormatException e) {
-                         continue; // Skip this entry if roll number is invalid
-                    }
+    @Override
+    public void onSaveFailed() {
+        Toast.makeText(this, "Could not save attendance", Toast.LENGTH_LONG).show();
+    }
 
-                    String name = parts[2].trim();
-                    long sid = dbHelper.addStudent(cid, roll, name);
-                    studentItems.add(new StudentItem(sid, roll, name));
-                }
-            }
-            reader.close();
-        } catch (IOException e) {
-            e.printStackTrace();
-            Toast.makeText(this, "Error reading CSV file", Toast.LENGTH_SHORT).show();
+    // Periods that already hold a saved sheet on the selected date are ticked.
+    @Override
+    public void onMarkedPeriods(int[] marked) {
+        String[] labels = new String[MyCalendar.MAX_PERIODS];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = MyCalendar.formatPeriod(DbHelper.FIRST_PERIOD + i);
+        }
+        for (int period : marked) {
+            int i = period - DbHelper.FIRST_PERIOD;
+            if (i >= 0 && i < labels.length) labels[i] += " \u2713";
         }
+        new AlertDialog.Builder(this)
+                .setTitle(calendar.getDate())
+                .setSingleChoiceItems(labels, calendar.getPeriod() - DbHelper.FIRST_PERIOD, (dialog, which) -> {
+                    dialog.dismiss();
+                    selectPeriod(DbHelper.FIRST_PERIOD + which);
+                })
+                .show();
+    }
+
+    @Override
+    public void onExportProgress(int percent) {
+        showExportState();
+    }
+
+    @Override
+    public void onExportFinished(boolean saved) {
+        showExportState();
+        Toast.makeText(this, saved ? "Attendance data downloaded to Downloads folder" : "Failed to download data",
+                Toast.LENGTH_LONG).show();
+    }
+
+    // The adapter diffs against its previous list off the UI thread, so it gets its own copy.
+    private void submitStudents() {
+        adapter.submitList(new ArrayList<>(model.getStudents()));
     }
 
-    private void changeStatus(int position) {
-        String currentStatus = studentItems.get(position).getStatus();
-        studentItems.get(position).setStatus(currentStatus.equals("P") ? "A" : "P");
-        adapter.notifyItemChanged(position);
+    private void updateSubtitle() {
+        int selected = model.getSelectedCount();
+        subtitle.setText(selected == 0 ? calendar.getSession()
+                : calendar.getSession() + " | " + selected + " selected");
     }
 
     private boolean onMenuItemClick(MenuItem menuItem) {
         if (menuItem.getItemId() == R.id.show_Calendar) {
             showCalendar();
             return true;
+        } else if (menuItem.getItemId() == R.id.select_period) {
+            showPeriods();
+            return true;
+        } else if (menuItem.getItemId() == R.id.previous_day) {
+            stepDate(-1);
+            return true;
+        } else if (menuItem.getItemId() == R.id.next_day) {
+            stepDate(1);
+            return true;
+        } else if (menuItem.getItemId() == R.id.mark_all_present) {
+            model.markStudents("P");
+            return true;
+        } else if (menuItem.getItemId() == R.id.mark_all_absent) {
+            model.markStudents("A");
+            return true;
+        } else if (menuItem.getItemId() == R.id.copy_previous_day) {
+            model.copyPreviousDay();
+            return true;
+        } else if (menuItem.getItemId() == R.id.fill_range) {
+            showFillRange();
+            return true;
+        } else if (menuItem.getItemId() == R.id.delete_selected) {
+            if (model.getSelectedCount() > 0) deleteStudents(model.getSelection());
+            return true;
+        } else if (menuItem.getItemId() == R.id.export_month) {
+            exportAttendance(new long[]{cid}, calendar.getMonthStartEpochDay(), calendar.getEpochDay());
+            return true;
+        } else if (menuItem.getItemId() == R.id.export_all_classes) {
+            exportAttendance(null, calendar.getMonthStartEpochDay(), calendar.getEpochDay());
+            return true;
         }
         return false;
     }
@@ -171,74 +258,101 @@ public class StudentActivity extends AppCompatActivity {
     }
 
     private void onCalendarOkClicked(int year, int month, int day) {
-        calendar.setDate(year, month, day);
-        subtitle.setText(calendar.getDate());
-        loadStatusData();
+        showSheet(MyCalendar.toEpochDay(year, month, day), calendar.getPeriod());
+    }
+
+    // Date and period changes all go through the model, which outlives this activity.
+    private void showSheet(long date, int period) {
+        model.showSheet(date, period);
+        calendar.setEpochDay(date);
+        calendar.setPeriod(period);
+        updateSubtitle();
+    }
+
+    // The dialog opens from onMarkedPeriods() once the model has read the periods.
+    private void showPeriods() {
+        model.loadMarkedPeriods();
+    }
+
+    private void selectPeriod(int period) {
+        if (period == calendar.getPeriod()) return;
+        showSheet(calendar.getEpochDay(), period);
+    }
+
+    private void stepDate(int days) {
+        long date = calendar.getEpochDay() + days;
+        if (date > MyCalendar.todayEpochDay()) return;
+        showSheet(date, calendar.getPeriod());
     }
 
     @Override
     public boolean onContextItemSelected(@NonNull MenuItem item) {
         if (item.getItemId() == 1) {
-            deleteStudent(item.getGroupId());
+            deleteStudents(Collections.singleton(adapter.getContextMenuSid()));
+            return true;
+        } else if (item.getItemId() == 2) {
+            model.toggleSelection(adapter.getContextMenuSid());
             return true;
         }
         return super.onContextItemSelected(item);
     }
 
-    private void deleteStudent(int position) {
-        dbHelper.deleteStudent(studentItems.get(position).getSid());
-        studentItems.remove(position);
-        adapter.notifyItemRemoved(position);
+    private void deleteStudents(Set<Long> sids) {
+        int count = model.deleteStudents(sids);
+        if (count == 0) return; // Already gone
+        showUndo(count);
     }
 
-    private void downloadAttendanceData() {
-        String date = calendar.getDate();
-        StringBuilder csvData = new StringBuilder();
-        csvData.append("Roll Number,Name,Status\n"); // CSV header
-
-        for (StudentItem studentItem : studentItems) {
-            csvData.append(studentItem.getRoll()).append(",")
-                    .append(studentItem.getName()).append(",")
-                    .append(studentItem.getStatus()).append("\n");
-        }
+    private void showUndo(int count) {
+        Snackbar.make(recyclerView, count == 1 ? "Student deleted" : count + " students deleted", Snackbar.LENGTH_LONG)
+                .setAction("Undo", v -> model.undoDeletes())
+                .addCallback(new Snackbar.Callback() {
+                    @Override
+                    public void onDismissed(Snackbar snackbar, int event) {
+                        // A newer delete's snackbar replaced this one, and committed this batch
+                        // itself; the batch held now is the newer one, still undoable. A rotation
+                        // detaches the snackbar too, and the recreated activity shows it again.
+                        if (event != DISMISS_EVENT_ACTION && event != DISMISS_EVENT_CONSECUTIVE
+                                && !isChangingConfigurations()) {
+                            model.commitDeletes();
+                        }
+                    }
+                })
+                .show();
+    }
 
-        saveToFile(csvData.toString(), date);
+    // A rotation keeps the model, and with it the unsaved marks and the undoable
+    // deletes, so only a real stop writes them.
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (model != null && !isChangingConfigurations()) model.onStop();
     }
 
-    private void saveToFile(String data, String date) {
-        if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.Q) {
-            // For Android 10 and above
-            ContentValues values = new ContentValues();
-            values.put(MediaStore.Downloads.DISPLAY_NAME, "Attendance_" + date.replace(".", "_") + ".csv");
-            values.put(MediaStore.Downloads.MIME_TYPE, "text/csv");
-            values.put(MediaStore.Downloads.RELATIVE_PATH, Environment.DIRECTORY_DOWNLOADS);
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (model != null) model.setListener(null);
+    }
 
-            Uri uri = getContentResolver().insert(MediaStore.Downloads.EXTERNAL_CONTENT_URI, values);
-            if (uri != null) {
-                try (OutputStream outputStream = getContentResolver().openOutputStream(uri)) {
-                    if (outputStream != null) {
-                        outputStream.write(data.getBytes());
-                        Toast.makeText(this, "Attendance data downloaded to Downloads folder", Toast.LENGTH_LONG).show();
-                    }
-                } catch (IOException e) {
-                    e.printStackTrace();
-                    Toast.makeText(this, "Failed to download data", Toast.LENGTH_LONG).show();
-                }
-            }
-        } else {
-            // For devices below Android 10
-            File directory = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS);
-            File file = new File(directory, "Attendance_" + date.replace(".", "_") + ".csv");
-
-            try (FileWriter writer = new FileWriter(file)) {
-                writer.write(data);
-                Toast.makeText(this, "Attendance data downloaded to Downloads folder", Toast.LENGTH_LONG).show();
-            } catch (IOException e) {
-                e.printStackTrace();
-                Toast.makeText(this, "Failed to download data", Toast.LENGTH_LONG).show();
-            }
-        }
+    private void downloadAttendanceData() {
+        long date = calendar.getEpochDay();
+        exportAttendance(new long[]{cid}, date, date);
+    }
+
+    private void exportAttendance(long[] cids, long fromDate, long toDate) {
+        String fileName = "Attendance_" + MyCalendar.formatEpochDay(fromDate).replace(".", "_")
+                + (fromDate == toDate ? "" : "_to_" + MyCalendar.formatEpochDay(toDate).replace(".", "_")) + ".csv";
+        model.exportAttendance(cids, fromDate, toDate, fileName);
+        showExportState();
+    }
+
+    // The download button stays disabled and shows progress while the model exports.
+    private void showExportState() {
+        downloadButton.setEnabled(!model.isExporting());
+        downloadButton.setText(model.isExporting() ? "Exporting " + model.getExportPercent() + "%" : "Download");
     }
+
     private void requestPermissions() {
         if (ContextCompat.checkSelfPermission(this, Manifest.permission.READ_EXTERNAL_STORAGE)
                 != PackageManager.PERMISSION_GRANTED) {
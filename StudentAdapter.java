@@ -11,45 +11,86 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.cardview.widget.CardView;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.ArrayList;
-
-public class StudentAdapter extends RecyclerView.Adapter<StudentAdapter.StudentViewHolder> {
-    private ArrayList<StudentItem> studentItems;
-    private Context context;
+// Lists are diffed on a background thread; items are never mutated once submitted,
+// so callers replace a changed row with a copy before submitting the new list.
+public class StudentAdapter extends ListAdapter<StudentItem, StudentAdapter.StudentViewHolder> {
     private OnItemClickListener onItemClickListener;
+    // Card colors indexed by StudentItem status, resolved once instead of on every bind.
+    private final int[] statusColors = new int[3];
+    private final int selectedColor;
+    // Student whose row opened the context menu, for onContextItemSelected().
+    private long contextMenuSid = RecyclerView.NO_ID;
+
+    private static final DiffUtil.ItemCallback<StudentItem> DIFF_CALLBACK = new DiffUtil.ItemCallback<StudentItem>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull StudentItem oldItem, @NonNull StudentItem newItem) {
+            return oldItem.getSid() == newItem.getSid();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull StudentItem oldItem, @NonNull StudentItem newItem) {
+            return oldItem.getRoll() == newItem.getRoll()
+                    && oldItem.getName().equals(newItem.getName())
+                    && oldItem.getStatus() == newItem.getStatus()
+                    && oldItem.getPresentCount() == newItem.getPresentCount()
+                    && oldItem.getTotalCount() == newItem.getTotalCount()
+                    && oldItem.isSelected() == newItem.isSelected();
+        }
+    };
 
     public interface OnItemClickListener {
-        void onClick(int position);
+        void onClick(long sid);
     }
 
     public void setOnItemClickListener(OnItemClickListener onItemClickListener) {
         this.onItemClickListener = onItemClickListener;
     }
 
-    public StudentAdapter(Context context, ArrayList<StudentItem> studentItems) {
-        this.studentItems = studentItems;
-        this.context = context;
+    public StudentAdapter(Context context) {
+        super(DIFF_CALLBACK);
+        statusColors[StudentItem.STATUS_NONE] = ContextCompat.getColor(context, R.color.normal);
+        statusColors[StudentItem.STATUS_PRESENT] = ContextCompat.getColor(context, R.color.present);
+        statusColors[StudentItem.STATUS_ABSENT] = ContextCompat.getColor(context, R.color.absent);
+        selectedColor = ContextCompat.getColor(context, R.color.selected);
+        setHasStableIds(true);
+    }
+
+    long getContextMenuSid() {
+        return contextMenuSid;
     }
 
-    public static class StudentViewHolder extends RecyclerView.ViewHolder implements View.OnCreateContextMenuListener {
-        TextView roll, name, status;
+    // Rows report their student rather than their position: the list this adapter
+    // shows can be a diff behind the window it was copied from, and a row on its way
+    // out has no position at all.
+    public class StudentViewHolder extends RecyclerView.ViewHolder implements View.OnCreateContextMenuListener {
+        TextView roll, name, status, percentage;
         CardView cardView;
 
-        public StudentViewHolder(@NonNull View itemView, OnItemClickListener onItemClickListener) {
+        public StudentViewHolder(@NonNull View itemView) {
             super(itemView);
             roll = itemView.findViewById(R.id.roll);
             name = itemView.findViewById(R.id.name);
             status = itemView.findViewById(R.id.status);
+            percentage = itemView.findViewById(R.id.percentage);
             cardView = itemView.findViewById(R.id.cardview);
-            itemView.setOnClickListener(v -> onItemClickListener.onClick(getAdapterPosition()));
+            itemView.setOnClickListener(v -> {
+                int position = getAdapterPosition();
+                if (position != RecyclerView.NO_POSITION) onItemClickListener.onClick(getItem(position).getSid());
+            });
             itemView.setOnCreateContextMenuListener(this);
         }
 
         @Override
         public void onCreateContextMenu(ContextMenu menu, View v, ContextMenu.ContextMenuInfo menuInfo) {
-            menu.add(getAdapterPosition(), 1, 0, "Delete");
+            int position = getAdapterPosition();
+            if (position == RecyclerView.NO_POSITION) return;
+            contextMenuSid = getItem(position).getSid();
+            menu.add(0, 1, 0, "Delete");
+            menu.add(0, 2, 0, "Select");
         }
     }
 
@@ -57,30 +98,23 @@ public class StudentAdapter extends RecyclerView.Adapter<StudentAdapter.StudentV
     @Override
     public StudentViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View itemView = LayoutInflater.from(parent.getContext()).inflate(R.layout.student_item, parent, false);
-        return new StudentViewHolder(itemView, onItemClickListener);
+        return new StudentViewHolder(itemView);
     }
 
     @Override
     public void onBindViewHolder(@NonNull StudentViewHolder holder, int position) {
-        StudentItem student = studentItems.get(position);
-        holder.roll.setText(String.valueOf(student.getRoll()));
+        long start = Metrics.start("StudentAdapter.onBindViewHolder");
+        StudentItem student = getItem(position);
+        holder.roll.setText(student.getRollText());
         holder.name.setText(student.getName());
-        holder.status.setText(student.getStatus());
-        holder.cardView.setCardBackgroundColor(getColor(position));
-    }
-
-    private int getColor(int position) {
-        String status = studentItems.get(position).getStatus();
-        if (status.equals("P")) {
-            return ContextCompat.getColor(context, R.color.present);
-        } else if (status.equals("A")) {
-            return ContextCompat.getColor(context, R.color.absent);
-        }
-        return ContextCompat.getColor(context, R.color.normal);
+        holder.status.setText(StudentItem.statusLabel(student.getStatus()));
+        holder.percentage.setText(student.getPercentageText());
+        holder.cardView.setCardBackgroundColor(student.isSelected() ? selectedColor : statusColors[student.getStatus()]);
+        Metrics.stop(start);
     }
 
     @Override
-    public int getItemCount() {
-        return studentItems.size();
+    public long getItemId(int position) {
+        return getItem(position).getSid();
     }
 }
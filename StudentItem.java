@@ -1,6 +1,14 @@
 package com.example.attendanceapp;
 public class StudentItem {
+    // Status is kept as a byte so binding and diffing never compare strings; the
+    // database still stores the "P"/"A" labels.
+    public static final byte STATUS_NONE = 0;
+    public static final byte STATUS_PRESENT = 1;
+    public static final byte STATUS_ABSENT = 2;
+    private static final String[] STATUS_LABELS = {"", "P", "A"};
+
     private int roll;
+    private String rollText;
     private String name;
     public long getSid() {
         return sid;
@@ -9,18 +17,38 @@ public class StudentItem {
         this.sid = sid;
     }
     private long sid;
-    private String status;
+    private byte status;
+    private int presentCount;
+    private int totalCount;
+    private String percentageText = "";
+    private boolean selected;
     public StudentItem(long sid,int roll, String name) {
         this.sid=sid;
-        this.roll = roll;
+        setRoll(roll);
         this.name = name;
-        status="";
+        status=STATUS_NONE;
+    }
+    // For copy(): takes the roll text as it is instead of formatting the roll again.
+    private StudentItem(StudentItem source) {
+        sid = source.sid;
+        roll = source.roll;
+        rollText = source.rollText;
+        name = source.name;
+        status = source.status;
+        presentCount = source.presentCount;
+        totalCount = source.totalCount;
+        percentageText = source.percentageText;
+        selected = source.selected;
     }
     public int getRoll() {
         return roll;
     }
     public void setRoll(int roll) {
         this.roll = roll;
+        this.rollText = String.valueOf(roll);
+    }
+    public String getRollText() {
+        return rollText;
     }
     public String getName() {
         return name;
@@ -28,10 +56,41 @@ public class StudentItem {
     public void setName(String name) {
         this.name = name;
     }
-    public String getStatus() {
+    public byte getStatus() {
         return status;
     }
-    public void setStatus(String status) {
+    public void setStatus(byte status) {
         this.status = status;
     }
+    public static String statusLabel(byte status) {
+        return STATUS_LABELS[status];
+    }
+    public static byte parseStatus(String label) {
+        if ("P".equals(label)) return STATUS_PRESENT;
+        if ("A".equals(label)) return STATUS_ABSENT;
+        return STATUS_NONE;
+    }
+    public int getPresentCount() {
+        return presentCount;
+    }
+    public int getTotalCount() {
+        return totalCount;
+    }
+    public void setCounts(int presentCount, int totalCount) {
+        this.presentCount = presentCount;
+        this.totalCount = totalCount;
+        this.percentageText = totalCount > 0 ? presentCount * 100 / totalCount + "%" : "";
+    }
+    public String getPercentageText() {
+        return percentageText;
+    }
+    public boolean isSelected() {
+        return selected;
+    }
+    public void setSelected(boolean selected) {
+        this.selected = selected;
+    }
+    public StudentItem copy() {
+        return new StudentItem(this);
+    }
 }
@@ -0,0 +1,393 @@
+package com.example.attendanceapp;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LongSparseArray;
+
+import androidx.lifecycle.ViewModel;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+
+// What StudentActivity shows and would otherwise have to read again: the roster
+// window, the sheet on screen with its unsaved marks, the selection and the deletes
+// held behind an undo. It outlives the activity across rotations and split-screen
+// resizes, so a recreated activity only rebinds to it. Every repository callback
+// lands here rather than in an activity that may be gone, and the current activity
+// hears about changes through its Listener. Used from the main thread only.
+public class StudentViewModel extends ViewModel {
+    interface Listener {
+        // The rows, their marks, their counters or the selection changed.
+        void onSheetChanged();
+
+        // A Save from the toolbar button has been written.
+        void onSaved();
+
+        // Marks could not be written; the sheet shows what the database holds again,
+        // except for toggles on it that are still waiting to be saved.
+        void onSaveFailed();
+
+        // The periods that hold a saved sheet on the selected date, as asked for by
+        // loadMarkedPeriods().
+        void onMarkedPeriods(int[] marked);
+
+        // The running export has written this percentage of its students.
+        void onExportProgress(int percent);
+
+        // The export started by exportAttendance() has finished, or failed.
+        void onExportFinished(boolean saved);
+    }
+
+    private static final int PAGE_SIZE = 50;
+    private static final int MAX_LOADED_STUDENTS = 200;
+    // Quiet time after the last toggle before the changed marks are written.
+    private static final long AUTOSAVE_DELAY_MS = 2000;
+
+    private AttendanceRepository repository;
+    private long cid;
+    private KeysetPager<StudentItem> pager;
+    private ArrayList<StudentItem> studentItems;
+    private StatusPrefetcher prefetcher;
+    private long date = MyCalendar.todayEpochDay();
+    private int period = DbHelper.FIRST_PERIOD;
+    // Marks of the selected date and period (sid -> "P"/"A") for the whole class, including toggles
+    // on rows that have since been paged out of the window.
+    private LongSparseArray<String> sheet = new LongSparseArray<>();
+    // The sheet as last loaded from or written to the database, and the marks toggled
+    // away from it since. Only the toggled marks are ever saved; they are keyed by
+    // student rather than by row, since rows shift as pages come and go.
+    private LongSparseArray<String> savedSheet = new LongSparseArray<>();
+    private final LongSparseArray<String> dirtyMarks = new LongSparseArray<>();
+    private final Handler autosaveHandler = new Handler(Looper.getMainLooper());
+    private final Runnable autosave = () -> saveMarks(false);
+    // Students picked through the "Select" context item; taps toggle the selection
+    // while it is not empty, and Mark Present/Absent then apply to it alone.
+    private final HashSet<Long> selectedSids = new HashSet<>();
+    // Deleted rows kept while the undo snackbar is up; the database delete runs once
+    // it is dismissed or the activity stops.
+    private final Tombstones<StudentItem> deletedStudents = new Tombstones<>(StudentItem::getSid);
+    // Percentage written by the running export, or -1 while none is running.
+    private int exportPercent = -1;
+    private Listener listener;
+
+    // Binds to a class and starts loading it: the CSV roster is imported if it changed,
+    // then read. Returns false if the model already holds the class, which is the case
+    // whenever the activity is only being recreated.
+    boolean load(AttendanceRepository repository, long cid, String className, String subjectName) {
+        if (pager != null) return false;
+        this.repository = repository;
+        this.cid = cid;
+        pager = new KeysetPager<>(repository, repository.studentPages(cid), PAGE_SIZE, MAX_LOADED_STUDENTS, this::applySheet);
+        studentItems = pager.getWindow();
+        prefetcher = new StatusPrefetcher(repository, cid);
+        // A failed import still shows the roster already stored
+        repository.importRoster(cid, className, subjectName, AttendanceRepository.callback(changed -> {
+            pager.refresh();
+            loadStatusData();
+        }, e -> {
+            pager.refresh();
+            loadStatusData();
+        }));
+        return true;
+    }
+
+    // The activity in front, or null while there is none.
+    void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    ArrayList<StudentItem> getStudents() {
+        return studentItems;
+    }
+
+    long getDate() {
+        return date;
+    }
+
+    int getPeriod() {
+        return period;
+    }
+
+    int getSelectedCount() {
+        return selectedSids.size();
+    }
+
+    boolean isExporting() {
+        return exportPercent >= 0;
+    }
+
+    int getExportPercent() {
+        return exportPercent;
+    }
+
+    void onVisibleRange(int first, int last) {
+        pager.onVisibleRange(first, last);
+    }
+
+    // Switches to another sheet, queueing the current one's pending marks first.
+    void showSheet(long date, int period) {
+        flushMarks();
+        this.date = date;
+        this.period = period;
+        prefetcher.setPeriod(period);
+        loadStatusData();
+    }
+
+    // Writes the toggled marks of the sheet on screen. A Save (markBlanksAbsent) also
+    // marks everyone still unmarked absent and then shows the completed sheet;
+    // autosaves leave blanks alone.
+    void saveMarks(boolean markBlanksAbsent) {
+        autosaveHandler.removeCallbacks(autosave);
+        if (dirtyMarks.size() == 0 && !markBlanksAbsent) return;
+        LongSparseArray<String> marks = dirtyMarks.clone();
+        long savedDate = date;
+        int savedPeriod = period;
+        AttendanceRepository.Callback<LongSparseArray<int[]>> saved = summaries -> {
+            prefetcher.release(savedDate, savedPeriod, marks);
+            prefetcher.invalidate();
+            if (savedDate == date && savedPeriod == period) {
+                for (int i = 0; i < marks.size(); i++) {
+                    long sid = marks.keyAt(i);
+                    savedSheet.put(sid, marks.valueAt(i));
+                    // Toggled again while the save was queued: still dirty
+                    if (marks.valueAt(i).equals(dirtyMarks.get(sid))) dirtyMarks.remove(sid);
+                }
+                if (markBlanksAbsent) loadStatusData();
+            }
+            applySummaries(summaries);
+            if (markBlanksAbsent && listener != null) listener.onSaved();
+        };
+        repository.saveStatuses(cid, savedDate, savedPeriod, marks, markBlanksAbsent,
+                AttendanceRepository.callback(saved, e -> {
+                    prefetcher.release(savedDate, savedPeriod, marks);
+                    onWriteFailed(e);
+                }));
+    }
+
+    // Queues the sheet's pending marks before another sheet is shown or the marks are
+    // changed in bulk; the writer runs them ahead of whatever is queued next. They are
+    // no longer dirty once queued, so the prefetcher holds them meanwhile: stepping
+    // back to this sheet before the write lands still shows them.
+    private void flushMarks() {
+        prefetcher.hold(date, period, dirtyMarks);
+        saveMarks(false);
+        dirtyMarks.clear();
+    }
+
+    private void applySummaries(LongSparseArray<int[]> summaries) {
+        for (int i = 0; i < studentItems.size(); i++) {
+            int[] counts = summaries.get(studentItems.get(i).getSid());
+            if (counts != null && (counts[0] != studentItems.get(i).getPresentCount()
+                    || counts[1] != studentItems.get(i).getTotalCount())) {
+                StudentItem updated = studentItems.get(i).copy();
+                updated.setCounts(counts[0], counts[1]);
+                studentItems.set(i, updated);
+            }
+        }
+        notifyChanged();
+    }
+
+    // Bulk marks go straight to the database; the sheet is then reloaded from it.
+    void markStudents(String status) {
+        flushMarks();
+        long[] sids = null;
+        if (!selectedSids.isEmpty()) {
+            sids = new long[selectedSids.size()];
+            int i = 0;
+            for (long sid : selectedSids) sids[i++] = sid;
+            selectedSids.clear();
+        }
+        repository.fillStatuses(cid, sids, date, date, period, status,
+                AttendanceRepository.callback(this::onBulkMarked, this::onWriteFailed));
+    }
+
+    void copyPreviousDay() {
+        flushMarks();
+        repository.copyStatuses(cid, date - 1, date, period,
+                AttendanceRepository.callback(this::onBulkMarked, this::onWriteFailed));
+    }
+
+    // Fills the selected period over a date range, for holidays and trips.
+    void fillRange(long fromDate, long toDate, String status) {
+        flushMarks();
+        repository.fillStatuses(cid, null, fromDate, toDate, period, status,
+                AttendanceRepository.callback(this::onBulkMarked, this::onWriteFailed));
+    }
+
+    private void onBulkMarked(LongSparseArray<int[]> summaries) {
+        prefetcher.invalidate();
+        applySummaries(summaries);
+        loadStatusData();
+    }
+
+    // The sheet is read back from the database, so it stops showing marks that were
+    // never written. Toggles on it that are still pending stay dirty and go out with
+    // the next save.
+    private void onWriteFailed(Exception e) {
+        prefetcher.invalidate();
+        loadStatusData();
+        if (listener != null) listener.onSaveFailed();
+    }
+
+    // Answers through onMarkedPeriods(), unless another date was picked meanwhile.
+    void loadMarkedPeriods() {
+        long loadDate = date;
+        repository.loadMarkedPeriods(cid, loadDate, marked -> {
+            if (loadDate == date && listener != null) listener.onMarkedPeriods(marked);
+        });
+    }
+
+    // Exports saved marks, so the report matches what is in the database. Only one
+    // export runs at a time; progress and the result go to whichever activity is in
+    // front when they arrive.
+    void exportAttendance(long[] cids, long fromDate, long toDate, String fileName) {
+        if (isExporting()) return;
+        exportPercent = 0;
+        repository.exportAttendance(cids, fromDate, toDate, fileName, percent -> {
+            if (!isExporting()) return; // Already finished
+            exportPercent = percent;
+            if (listener != null) listener.onExportProgress(percent);
+        }, AttendanceRepository.callback(this::onExported, e -> onExported(false)));
+    }
+
+    private void onExported(boolean saved) {
+        exportPercent = -1;
+        if (listener != null) listener.onExportFinished(saved);
+    }
+
+    // Served from the prefetcher when the date is a neighbour of one loaded before.
+    private void loadStatusData() {
+        long loadDate = date;
+        int loadPeriod = period;
+        prefetcher.load(loadDate, MyCalendar.todayEpochDay(), statuses -> {
+            // A newer date or period was picked meanwhile
+            if (loadDate != date || loadPeriod != period) return;
+            savedSheet = statuses.clone();
+            for (int i = 0; i < dirtyMarks.size(); i++) {
+                statuses.put(dirtyMarks.keyAt(i), dirtyMarks.valueAt(i));
+            }
+            sheet = statuses;
+            applySheet();
+        });
+    }
+
+    // Brings the loaded rows in line with the sheet and the selection; also runs
+    // whenever a page arrives.
+    private void applySheet() {
+        deletedStudents.filter(studentItems);
+        for (int i = 0; i < studentItems.size(); i++) {
+            long sid = studentItems.get(i).getSid();
+            byte status = StudentItem.parseStatus(sheet.get(sid)); // Status or none
+            boolean selected = selectedSids.contains(sid);
+            if (status != studentItems.get(i).getStatus() || selected != studentItems.get(i).isSelected()) {
+                StudentItem updated = studentItems.get(i).copy();
+                updated.setStatus(status);
+                updated.setSelected(selected);
+                studentItems.set(i, updated);
+            }
+        }
+        notifyChanged();
+    }
+
+    // A tap toggles the student's mark, or their selection while one is being made.
+    // Students no longer in the window (paged out or deleted meanwhile) are ignored.
+    void changeStatus(long sid) {
+        if (!selectedSids.isEmpty()) {
+            toggleSelection(sid);
+            return;
+        }
+        int position = indexOf(sid);
+        if (position < 0) return;
+        StudentItem updated = studentItems.get(position).copy();
+        updated.setStatus(updated.getStatus() == StudentItem.STATUS_PRESENT
+                ? StudentItem.STATUS_ABSENT : StudentItem.STATUS_PRESENT);
+        studentItems.set(position, updated);
+        String status = StudentItem.statusLabel(updated.getStatus());
+        sheet.put(updated.getSid(), status);
+        if (status.equals(savedSheet.get(updated.getSid()))) {
+            dirtyMarks.remove(updated.getSid()); // Toggled back to what is saved
+        } else {
+            dirtyMarks.put(updated.getSid(), status);
+        }
+        notifyChanged();
+        autosaveHandler.removeCallbacks(autosave);
+        if (dirtyMarks.size() > 0) autosaveHandler.postDelayed(autosave, AUTOSAVE_DELAY_MS);
+    }
+
+    void toggleSelection(long sid) {
+        int position = indexOf(sid);
+        if (position < 0) return;
+        StudentItem updated = studentItems.get(position).copy();
+        updated.setSelected(!updated.isSelected());
+        if (updated.isSelected()) {
+            selectedSids.add(updated.getSid());
+        } else {
+            selectedSids.remove(updated.getSid());
+        }
+        studentItems.set(position, updated);
+        notifyChanged();
+    }
+
+    private int indexOf(long sid) {
+        for (int i = 0; i < studentItems.size(); i++) {
+            if (studentItems.get(i).getSid() == sid) return i;
+        }
+        return -1;
+    }
+
+    // The selected students, or none while nothing is selected.
+    Set<Long> getSelection() {
+        return new HashSet<>(selectedSids);
+    }
+
+    // Takes the rows out of the window until commitDeletes() or undoDeletes(). Returns
+    // the number of rows taken out; 0 means they were already gone.
+    int deleteStudents(Set<Long> sids) {
+        commitDeletes(); // Only one batch is undoable at a time
+        int count = deletedStudents.bury(studentItems, sids);
+        selectedSids.removeAll(sids);
+        notifyChanged();
+        if (count == 0) commitDeletes(); // No row to put back, so nothing to undo
+        return count;
+    }
+
+    void undoDeletes() {
+        deletedStudents.restore(studentItems);
+        applySheet();
+    }
+
+    // Students deleted but still undoable, for a recreated activity to offer the undo again.
+    int getPendingDeletes() {
+        return deletedStudents.size();
+    }
+
+    void commitDeletes() {
+        if (deletedStudents.isEmpty()) return;
+        long[] sids = deletedStudents.release();
+        for (long sid : sids) {
+            sheet.remove(sid);
+            savedSheet.remove(sid);
+            dirtyMarks.remove(sid); // Their enrollment is going, so there is nowhere to save it
+        }
+        prefetcher.invalidate();
+        repository.deleteStudents(cid, sids);
+    }
+
+    // The activity is leaving the screen for good or for the background: write what is
+    // pending. A rotation does not come through here.
+    void onStop() {
+        saveMarks(false);
+        commitDeletes();
+    }
+
+    @Override
+    protected void onCleared() {
+        autosaveHandler.removeCallbacks(autosave);
+        listener = null;
+    }
+
+    private void notifyChanged() {
+        if (listener != null) listener.onSheetChanged();
+    }
+}
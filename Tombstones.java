@@ -0,0 +1,87 @@
+package com.example.attendanceapp;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+
+// Rows taken out of a KeysetPager window while their delete is held back behind an
+// undo. Each row keeps its window position, so undo puts it back without rereading
+// the database; release() hands the ids over to the batch delete once the undo is
+// gone. Ids of selected rows that were paged out are buried too, without a row.
+class Tombstones<T> {
+    interface Ids<T> {
+        long idOf(T item);
+    }
+
+    private final Ids<T> ids;
+    private final HashSet<Long> buried = new HashSet<>();
+    private final ArrayList<T> rows = new ArrayList<>();
+    private final ArrayList<Integer> positions = new ArrayList<>();
+
+    Tombstones(Ids<T> ids) {
+        this.ids = ids;
+    }
+
+    boolean isEmpty() {
+        return buried.isEmpty();
+    }
+
+    int size() {
+        return buried.size();
+    }
+
+    // Moves the rows with the given ids out of the window in a single pass, so the
+    // adapter sees one contiguous change per run of removed rows. Returns the number
+    // of rows taken out, which is 0 if every row was already gone; ids without a row
+    // are buried all the same.
+    int bury(ArrayList<T> window, Set<Long> idsToBury) {
+        buried.addAll(idsToBury);
+        int before = window.size();
+        int kept = 0;
+        for (int i = 0; i < window.size(); i++) {
+            T item = window.get(i);
+            if (buried.contains(ids.idOf(item))) {
+                rows.add(item);
+                positions.add(i);
+            } else {
+                window.set(kept++, item);
+            }
+        }
+        window.subList(kept, window.size()).clear();
+        return before - kept;
+    }
+
+    // Drops rows that a page load brought back while they are buried.
+    void filter(ArrayList<T> window) {
+        if (buried.isEmpty()) return;
+        int kept = 0;
+        for (int i = 0; i < window.size(); i++) {
+            T item = window.get(i);
+            if (!buried.contains(ids.idOf(item))) window.set(kept++, item);
+        }
+        window.subList(kept, window.size()).clear();
+    }
+
+    // Puts every buried row back where it was, as far as the window still reaches.
+    void restore(ArrayList<T> window) {
+        for (int i = 0; i < rows.size(); i++) {
+            window.add(Math.min(positions.get(i), window.size()), rows.get(i));
+        }
+        clear();
+    }
+
+    // The ids to delete for good; empties the buffer.
+    long[] release() {
+        long[] released = new long[buried.size()];
+        int i = 0;
+        for (long id : buried) released[i++] = id;
+        clear();
+        return released;
+    }
+
+    private void clear() {
+        buried.clear();
+        rows.clear();
+        positions.clear();
+    }
+}
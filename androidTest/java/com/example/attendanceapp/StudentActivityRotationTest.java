@@ -0,0 +1,91 @@
+package com.example.attendanceapp;
+
+import android.content.Context;
+import android.content.Intent;
+
+import androidx.lifecycle.ViewModelProvider;
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+// A rotation must neither save the toggled marks nor commit the undoable deletes;
+// leaving the screen must do both. The marks are checked well inside the autosave
+// delay, so only an onStop() save could have written them.
+@RunWith(AndroidJUnit4.class)
+public class StudentActivityRotationTest {
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private final AttendanceRepository repository = AttendanceRepository.getInstance(context);
+    private final DbHelper dbHelper = new DbHelper(context);
+    private String className;
+    private long cid;
+    private long marked;
+    private long deleted;
+
+    @Before
+    public void setUp() {
+        className = "Rotation " + System.nanoTime(); // Not in the CSV roster
+        cid = dbHelper.addClass(className, "MAD");
+        marked = dbHelper.addStudent(cid, 1, "MARKED");
+        deleted = dbHelper.addStudent(cid, 2, "DELETED");
+    }
+
+    @Test
+    public void rotationKeepsPendingWritesAndStopWritesThem() throws InterruptedException {
+        Intent intent = new Intent(context, StudentActivity.class)
+                .putExtra("className", className)
+                .putExtra("subjectName", "MAD")
+                .putExtra("cid", cid);
+        long date = MyCalendar.todayEpochDay();
+        ActivityScenario<StudentActivity> scenario = ActivityScenario.launch(intent);
+        awaitStudents(scenario, 2);
+        scenario.onActivity(activity -> {
+            StudentViewModel model = new ViewModelProvider(activity).get(StudentViewModel.class);
+            model.changeStatus(marked);
+            model.deleteStudents(Collections.singleton(deleted));
+        });
+
+        scenario.recreate();
+        drainWriter();
+        assertNull(dbHelper.getStatus(marked, cid, date, DbHelper.FIRST_PERIOD));
+        assertEquals(2, dbHelper.countStudents(new long[]{cid}));
+        scenario.onActivity(activity -> {
+            StudentViewModel model = new ViewModelProvider(activity).get(StudentViewModel.class);
+            assertEquals(1, model.getPendingDeletes());
+        });
+
+        scenario.close();
+        drainWriter();
+        assertEquals(StudentItem.statusLabel(StudentItem.STATUS_PRESENT), dbHelper.getStatus(marked, cid, date, DbHelper.FIRST_PERIOD));
+        assertEquals(1, dbHelper.countStudents(new long[]{cid}));
+    }
+
+    private static void awaitStudents(ActivityScenario<StudentActivity> scenario, int count) throws InterruptedException {
+        AtomicInteger loaded = new AtomicInteger();
+        for (int i = 0; i < 100 && loaded.get() < count; i++) {
+            scenario.onActivity(activity -> loaded.set(
+                    new ViewModelProvider(activity).get(StudentViewModel.class).getStudents().size()));
+            if (loaded.get() < count) Thread.sleep(50);
+        }
+        assertEquals(count, loaded.get());
+    }
+
+    // Writes run one at a time, so a no-op write finishes after every write queued before it.
+    private void drainWriter() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        repository.write(() -> true, result -> done.countDown());
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+}
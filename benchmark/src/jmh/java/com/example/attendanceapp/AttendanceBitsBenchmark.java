@@ -0,0 +1,66 @@
+package com.example.attendanceapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Packing a school year of daily marks into month masks the way DbHelper.compactStatuses
+// keys them, and counting them back out the way the summaries do.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AttendanceBitsBenchmark {
+    private static final int DAYS = 300;
+
+    // A field rather than a constant, so the JIT cannot fold the calendar math away.
+    private long firstDay = 19600; // 2023-08-31
+
+    private final int[] presence = new int[DAYS / 28 + 2];
+    private final int[] status = new int[presence.length];
+
+    @Setup
+    public void setUp() {
+        packYear(); // So countYear has marks to count
+    }
+
+    @Benchmark
+    public int packYear() {
+        int firstMonth = AttendanceBits.monthKey(firstDay);
+        for (long day = firstDay; day < firstDay + DAYS; day++) {
+            int month = AttendanceBits.monthKey(day) - firstMonth;
+            int bit = AttendanceBits.dayBit(day);
+            presence[month] |= bit;
+            if (day % 7 != 0) status[month] |= bit;
+        }
+        return presence[0];
+    }
+
+    @Benchmark
+    public int countYear() {
+        int present = 0;
+        for (int month = 0; month < presence.length; month++) {
+            present += AttendanceBits.presentDays(presence[month], status[month]);
+        }
+        return present;
+    }
+
+    @Benchmark
+    public long unpackMonth() {
+        int monthKey = AttendanceBits.monthKey(firstDay);
+        long sum = 0;
+        for (int day = 1; day <= 31; day++) sum += AttendanceBits.epochDay(monthKey, day);
+        return sum;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.attendanceapp;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.LongSparseArray;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// The database half of a CSV export: AttendanceExporter steps through
+// getAttendanceMatrix once per class and reads every column of every row. Here that
+// is one class with a school term (90 days) marked. The CSV formatting and the
+// MediaStore output are not included.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExportBenchmark {
+    private static final int DAYS = 90;
+    private static final long FIRST_DAY = 19600; // 2023-08-31
+
+    @Param({"50", "500", "5000"})
+    public int students;
+
+    private File directory;
+    private DbHelper dbHelper;
+    private long cid;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("export-benchmark").toFile();
+        dbHelper = new DbHelper(new Context(directory));
+        cid = dbHelper.addClass("MBA Tech", "MAD");
+        long[] sids = new long[students];
+        for (int i = 0; i < students; i++) sids[i] = dbHelper.addStudent(cid, 100 + i, "STUDENT " + i);
+        LongSparseArray<String> sheet = new LongSparseArray<>(students);
+        for (long day = FIRST_DAY; day < FIRST_DAY + DAYS; day++) {
+            for (int i = 0; i < students; i++) sheet.put(sids[i], (day + i) % 5 == 0 ? "A" : "P");
+            dbHelper.saveStatuses(cid, day, DbHelper.FIRST_PERIOD, sheet, true);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dbHelper.close();
+        StatusBenchmark.deleteTree(directory);
+    }
+
+    @Benchmark
+    public long attendanceMatrix() {
+        long checksum = 0;
+        Cursor rows = dbHelper.getAttendanceMatrix(cid, FIRST_DAY, FIRST_DAY + DAYS - 1);
+        try {
+            while (rows.moveToNext()) {
+                checksum += rows.getLong(0) + rows.getInt(1) + rows.getString(2).length();
+                if (!rows.isNull(3)) checksum += rows.getLong(3) + rows.getInt(4) + rows.getString(5).charAt(0);
+            }
+        } finally {
+            rows.close();
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.attendanceapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// What a timed section costs: one record() alone and from four threads sharing the
+// histogram, as the repository's read pool does, and a whole start()/stop() pair
+// with metrics on and off.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistogramBenchmark {
+    private final Metrics.Histogram histogram = new Metrics.Histogram();
+    private long value = 1;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < 100000; i++) histogram.record(i * 37L);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Metrics.setEnabled(false);
+        Metrics.reset();
+    }
+
+    @Benchmark
+    public void record() {
+        value = value * 6364136223846793005L + 1442695040888963407L;
+        histogram.record(value >>> 40);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordContended() {
+        histogram.record(System.nanoTime() & 0xFFFFF);
+    }
+
+    @Benchmark
+    public long percentile() {
+        return histogram.percentile(0.99);
+    }
+
+    @Benchmark
+    public void sectionEnabled() {
+        Metrics.setEnabled(true);
+        Metrics.stop(Metrics.start("HistogramBenchmark.section"));
+    }
+
+    @Benchmark
+    public void sectionDisabled() {
+        Metrics.setEnabled(false);
+        Metrics.stop(Metrics.start("HistogramBenchmark.section"));
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.attendanceapp;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The student screen over a class of 50,000 students. firstPage is what the screen
+// waits for with KeysetPager, loadAll what it waited for when it read the whole
+// class up front, and scrollToEnd pages through every student while the window
+// stays at 200 rows. Run with -prof gc for the bytes each allocates.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PagerBenchmark {
+    private static final int STUDENTS = 50000;
+    private static final int PAGE_SIZE = 50;
+    private static final int MAX_ITEMS = 200;
+
+    private File directory;
+    private DbHelper dbHelper;
+    private long cid;
+    private final AttendanceRepository repository = new AttendanceRepository();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("pager-benchmark").toFile();
+        dbHelper = new DbHelper(new Context(directory));
+        cid = dbHelper.addClass("MBA Tech", "MAD");
+        ArrayList<StudentItem> roster = new ArrayList<>(STUDENTS);
+        for (int roll = 1; roll <= STUDENTS; roll++) roster.add(new StudentItem(0, roll, "STUDENT " + roll));
+        dbHelper.importRoster(cid, roster, "hash");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dbHelper.close();
+        StatusBenchmark.deleteTree(directory);
+    }
+
+    @Benchmark
+    public List<StudentItem> firstPage() {
+        KeysetPager<StudentItem> pager = new KeysetPager<>(repository, this::loadPage, PAGE_SIZE, MAX_ITEMS, () -> { });
+        pager.refresh();
+        return pager.getWindow();
+    }
+
+    @Benchmark
+    public List<StudentItem> scrollToEnd() {
+        KeysetPager<StudentItem> pager = new KeysetPager<>(repository, this::loadPage, PAGE_SIZE, MAX_ITEMS, () -> { });
+        pager.refresh();
+        List<StudentItem> window = pager.getWindow();
+        while (!pager.isAtEnd()) pager.onVisibleRange(window.size() - 10, window.size() - 1);
+        return window;
+    }
+
+    @Benchmark
+    public List<StudentItem> loadAll() {
+        ArrayList<StudentItem> students = new ArrayList<>();
+        Cursor cursor = dbHelper.getStudentTable(cid);
+        try {
+            while (cursor.moveToNext()) students.add(student(cursor));
+        } finally {
+            cursor.close();
+        }
+        return students;
+    }
+
+    // AttendanceRepository.studentPages without its cache.
+    private List<StudentItem> loadPage(StudentItem anchor, boolean forward, int limit) {
+        ArrayList<StudentItem> page = new ArrayList<>(limit);
+        Cursor cursor = dbHelper.getStudentPage(cid, anchor == null ? Integer.MIN_VALUE : anchor.getRoll(), forward, limit);
+        try {
+            while (cursor.moveToNext()) page.add(student(cursor));
+        } finally {
+            cursor.close();
+        }
+        if (!forward) Collections.reverse(page);
+        return page;
+    }
+
+    private static StudentItem student(Cursor cursor) {
+        StudentItem student = new StudentItem(cursor.getLong(cursor.getColumnIndex(DbHelper.S_ID)),
+                cursor.getInt(cursor.getColumnIndex(DbHelper.STUDENT_ROLL_KEY)),
+                cursor.getString(cursor.getColumnIndex(DbHelper.STUDENT_NAME_KEY)));
+        student.setCounts(cursor.getInt(cursor.getColumnIndex(DbHelper.PRESENT_COUNT_KEY)),
+                cursor.getInt(cursor.getColumnIndex(DbHelper.TOTAL_COUNT_KEY)));
+        return student;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.attendanceapp;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// getStatusRange over the last month and the whole year of one class, with a second
+// class of the same size marked over the same year. fullScan reads the month with the
+// same filter but NOT INDEXED, which is what a dd.MM.yyyy string date left SQLite to
+// do: it cannot range over a string that does not sort by date.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RangeBenchmark {
+    private static final int DAYS = 365;
+    private static final int MONTH = 30;
+    private static final long FIRST_DAY = 19600; // 2023-08-31
+    private static final long LAST_DAY = FIRST_DAY + DAYS - 1;
+
+    @Param({"50", "500", "5000"})
+    public int students;
+
+    private File directory;
+    private DbHelper dbHelper;
+    private long cid;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("range-benchmark").toFile();
+        dbHelper = new DbHelper(new Context(directory));
+        cid = addMarkedClass("MBA Tech");
+        addMarkedClass("B. Tech CE");
+    }
+
+    private long addMarkedClass(String className) {
+        long cid = dbHelper.addClass(className, "MAD");
+        long[] absent = new long[(students + 4) / 5];
+        for (int i = 0; i < students; i++) {
+            long sid = dbHelper.addStudent(cid, 100 + i, "STUDENT " + i);
+            if (i % 5 == 0) absent[i / 5] = sid;
+        }
+        dbHelper.fillStatuses(cid, null, FIRST_DAY, LAST_DAY, DbHelper.FIRST_PERIOD, "P");
+        dbHelper.fillStatuses(cid, absent, FIRST_DAY, LAST_DAY, DbHelper.FIRST_PERIOD, "A");
+        return cid;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dbHelper.close();
+        StatusBenchmark.deleteTree(directory);
+    }
+
+    @Benchmark
+    public long month() {
+        return checksum(dbHelper.getStatusRange(cid, LAST_DAY - MONTH + 1, LAST_DAY));
+    }
+
+    @Benchmark
+    public long year() {
+        return checksum(dbHelper.getStatusRange(cid, FIRST_DAY, LAST_DAY));
+    }
+
+    @Benchmark
+    public long fullScan() {
+        return checksum(dbHelper.getReadableDatabase().rawQuery(
+                "SELECT " + DbHelper.S_ID + "," + DbHelper.DATE_KEY + "," + DbHelper.PERIOD_KEY + "," + DbHelper.STATUS_KEY +
+                        " FROM STATUS_TABLE NOT INDEXED WHERE " + DbHelper.C_ID + "=? AND " + DbHelper.DATE_KEY + " BETWEEN ? AND ?" +
+                        " ORDER BY " + DbHelper.DATE_KEY + "," + DbHelper.PERIOD_KEY,
+                new String[]{String.valueOf(cid), String.valueOf(LAST_DAY - MONTH + 1), String.valueOf(LAST_DAY)}));
+    }
+
+    private static long checksum(Cursor rows) {
+        long checksum = 0;
+        try {
+            while (rows.moveToNext()) {
+                checksum += rows.getLong(0) + rows.getLong(1) + rows.getInt(2) + rows.getString(3).charAt(0);
+            }
+        } finally {
+            rows.close();
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.attendanceapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// RosterImporter.readRoster's loop over a synthetic roster shaped like students.csv
+// (byte order mark, CRLF, trailing empty subject columns, several classes in one
+// file), once through RosterCsvReader and once through the line.split(",") parser
+// it replaced. Both pick out one class and subject, as the importer does.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RosterCsvBenchmark {
+    private static final int CLASS_COLUMN = 0;
+    private static final int ROLL_COLUMN = 1;
+    private static final int NAME_COLUMN = 2;
+    private static final int FIRST_SUBJECT_COLUMN = 3;
+    private static final String[] CLASSES = {"MBA Tech", "B. Tech CE", "B. Tech IT", "BBA"};
+    private static final String[] SUBJECTS = {"MAD", "OR", "DBMS", "CN", "AI"};
+    private static final String CLASS_NAME = "B. Tech CE";
+    private static final String SUBJECT_NAME = "MAD";
+
+    @Param({"50", "500", "5000", "100000"})
+    public int rows;
+
+    private String csv;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(rows);
+        StringBuilder roster = new StringBuilder("\uFEFFClass,Roll. No.,Student Name ,Subjects,,,,\r\n");
+        for (int i = 0; i < rows; i++) {
+            roster.append(CLASSES[random.nextInt(CLASSES.length)]).append(',')
+                    .append(100 + i).append(',')
+                    .append("STUDENT ").append(Integer.toString(i, 36).toUpperCase()).append(',');
+            int subjects = 1 + random.nextInt(3);
+            int first = random.nextInt(SUBJECTS.length);
+            for (int s = 0; s < 5; s++) {
+                if (s < subjects) roster.append(SUBJECTS[(first + s) % SUBJECTS.length]);
+                if (s < 4) roster.append(',');
+            }
+            roster.append("\r\n");
+        }
+        csv = roster.toString();
+    }
+
+    @Benchmark
+    public ArrayList<StudentItem> tokenizer() throws IOException {
+        ArrayList<StudentItem> roster = new ArrayList<>();
+        try (RosterCsvReader csv = new RosterCsvReader(new StringReader(this.csv))) {
+            while (csv.nextRow()) {
+                if (csv.getRowError() != null) continue;
+                if (csv.getFieldCount() <= FIRST_SUBJECT_COLUMN) continue;
+                if (!csv.fieldEqualsIgnoreCase(CLASS_COLUMN, CLASS_NAME)) continue;
+                if (!hasSubject(csv)) continue;
+
+                long roll = csv.getInt(ROLL_COLUMN);
+                if (roll == RosterCsvReader.INVALID_INT) continue;
+                roster.add(new StudentItem(0, (int) roll, csv.getString(NAME_COLUMN)));
+            }
+        }
+        return roster;
+    }
+
+    private static boolean hasSubject(RosterCsvReader csv) {
+        for (int i = FIRST_SUBJECT_COLUMN; i < csv.getFieldCount(); i++) {
+            if (csv.fieldEqualsIgnoreCase(i, SUBJECT_NAME)) return true;
+        }
+        return false;
+    }
+
+    @Benchmark
+    public ArrayList<StudentItem> split() throws IOException {
+        ArrayList<StudentItem> roster = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new StringReader(csv))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(",");
+                if (parts.length <= FIRST_SUBJECT_COLUMN) continue;
+                if (!parts[CLASS_COLUMN].trim().equalsIgnoreCase(CLASS_NAME.trim())) continue;
+                if (!hasSubject(parts)) continue;
+
+                int roll;
+                try {
+                    roll = Integer.parseInt(parts[ROLL_COLUMN].trim());
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                roster.add(new StudentItem(0, roll, parts[NAME_COLUMN].trim()));
+            }
+        }
+        return roster;
+    }
+
+    private static boolean hasSubject(String[] parts) {
+        for (int i = FIRST_SUBJECT_COLUMN; i < parts.length; i++) {
+            if (parts[i].trim().equalsIgnoreCase(SUBJECT_NAME.trim())) return true;
+        }
+        return false;
+    }
+}
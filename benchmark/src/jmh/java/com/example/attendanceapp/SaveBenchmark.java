@@ -0,0 +1,79 @@
+package com.example.attendanceapp;
+
+import android.content.Context;
+import android.util.LongSparseArray;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// Saving a whole sheet for a day nobody has marked yet: saveStatuses writes it in one
+// transaction, and perMark is the loop it replaced, one autocommit addStatus() per
+// student. Each call marks a fresh day, so both only ever insert.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SaveBenchmark {
+    private static final long FIRST_DAY = 19600; // 2023-08-31
+
+    @Param({"50", "500", "5000"})
+    public int students;
+
+    private File directory;
+    private DbHelper dbHelper;
+    private long cid;
+    private LongSparseArray<String> sheet;
+    private long nextDay = FIRST_DAY;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("save-benchmark").toFile();
+        dbHelper = new DbHelper(new Context(directory));
+        cid = dbHelper.addClass("MBA Tech", "MAD");
+        sheet = new LongSparseArray<>(students);
+        for (int i = 0; i < students; i++) {
+            sheet.put(dbHelper.addStudent(cid, 100 + i, "STUDENT " + i), i % 5 == 0 ? "A" : "P");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dbHelper.close();
+        StatusBenchmark.deleteTree(directory);
+    }
+
+    @Benchmark
+    public long saveStatuses() {
+        long day = nextDay++;
+        dbHelper.saveStatuses(cid, day, DbHelper.FIRST_PERIOD, sheet, false);
+        return day;
+    }
+
+    @Benchmark
+    public long perMark() {
+        long day = nextDay++;
+        long last = 0;
+        for (int i = 0; i < sheet.size(); i++) {
+            last = dbHelper.addStatus(sheet.keyAt(i), cid, day, DbHelper.FIRST_PERIOD, sheet.valueAt(i));
+        }
+        return last;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.attendanceapp;
+
+import android.content.Context;
+import android.util.LongSparseArray;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// DbHelper's per-mark calls on a file database in WAL mode, for one class of 50, 500
+// or 5,000 students with 60 school days already marked. Each benchmark touches one
+// student per call, moving round the class so the page cache sees the whole roster.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatusBenchmark {
+    static final int MARKED_DAYS = 60;
+    static final long FIRST_DAY = 19600; // 2023-08-31
+
+    @Param({"50", "500", "5000"})
+    public int students;
+
+    private File directory;
+    private DbHelper dbHelper;
+    private long cid;
+    private long[] sids;
+    private int next;
+    private long nextDay = FIRST_DAY + MARKED_DAYS;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("status-benchmark").toFile();
+        dbHelper = new DbHelper(new Context(directory));
+        cid = dbHelper.addClass("MBA Tech", "MAD");
+        sids = new long[students];
+        for (int i = 0; i < students; i++) sids[i] = dbHelper.addStudent(cid, 100 + i, "STUDENT " + i);
+        LongSparseArray<String> sheet = new LongSparseArray<>(students);
+        for (long day = FIRST_DAY; day < FIRST_DAY + MARKED_DAYS; day++) {
+            for (int i = 0; i < students; i++) sheet.put(sids[i], (day + i) % 5 == 0 ? "A" : "P");
+            dbHelper.saveStatuses(cid, day, DbHelper.FIRST_PERIOD, sheet, true);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dbHelper.close();
+        deleteTree(directory);
+    }
+
+    static void deleteTree(File file) {
+        File[] children = file.listFiles();
+        if (children != null) for (File child : children) deleteTree(child);
+        file.delete();
+    }
+
+    private long nextSid() {
+        if (next == sids.length) {
+            next = 0;
+            nextDay++; // A fresh day once every student has a mark on this one
+        }
+        return sids[next++];
+    }
+
+    private long markedDay() {
+        return FIRST_DAY + next % MARKED_DAYS;
+    }
+
+    // One autocommit insert of a mark that does not exist yet.
+    @Benchmark
+    public long addStatus() {
+        long sid = nextSid();
+        return dbHelper.addStatus(sid, cid, nextDay, DbHelper.FIRST_PERIOD, "P");
+    }
+
+    @Benchmark
+    public long updateStatus() {
+        long sid = nextSid();
+        return dbHelper.updateStatus(sid, cid, markedDay(), DbHelper.FIRST_PERIOD, next % 2 == 0 ? "P" : "A");
+    }
+
+    @Benchmark
+    public String getStatus() {
+        long sid = nextSid();
+        return dbHelper.getStatus(sid, cid, markedDay(), DbHelper.FIRST_PERIOD);
+    }
+
+    // The whole sheet for one day, as the student screen loads it.
+    @Benchmark
+    public LongSparseArray<String> getStatusesForClass() {
+        return dbHelper.getStatusesForClass(cid, FIRST_DAY + (next++ % MARKED_DAYS), DbHelper.FIRST_PERIOD);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.attendanceapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+// Deleting and undoing a selection of every tenth row in a loaded window, and the
+// filter every arriving page goes through while the undo is up.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TombstonesBenchmark {
+    // A page, and the most rows the view models keep loaded.
+    @Param({"50", "200"})
+    public int windowSize;
+
+    private final ArrayList<StudentItem> window = new ArrayList<>();
+    private final HashSet<Long> selection = new HashSet<>();
+    private final Tombstones<StudentItem> tombstones = new Tombstones<>(StudentItem::getSid);
+    private final Tombstones<StudentItem> pagedOut = new Tombstones<>(StudentItem::getSid);
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < windowSize; i++) {
+            window.add(new StudentItem(i + 1, 100 + i, "STUDENT " + i));
+            if (i % 10 == 0) selection.add((long) i + 1);
+        }
+        // Selected rows that were paged out before the delete: nothing in the window matches
+        HashSet<Long> elsewhere = new HashSet<>();
+        for (long sid = 0; sid < windowSize / 10; sid++) elsewhere.add(-sid - 1);
+        pagedOut.bury(new ArrayList<>(), elsewhere);
+    }
+
+    @Benchmark
+    public int buryAndRestore() {
+        int buried = tombstones.bury(window, selection);
+        tombstones.restore(window);
+        return buried;
+    }
+
+    @Benchmark
+    public int filterPage() {
+        pagedOut.filter(window);
+        return window.size();
+    }
+}
@@ -0,0 +1,20 @@
+package android.content;
+
+import java.io.File;
+
+// JVM stand-in: a context is only the directory its databases are kept in.
+public class Context {
+    private final File dataDir;
+
+    public Context(File dataDir) {
+        this.dataDir = dataDir;
+    }
+
+    public Context getApplicationContext() {
+        return this;
+    }
+
+    public File getDatabasePath(String name) {
+        return new File(new File(dataDir, "databases"), name);
+    }
+}
@@ -0,0 +1,43 @@
+package android.database;
+
+import java.io.Closeable;
+
+// JVM stand-in for the part of the framework interface the app reads rows through.
+public interface Cursor extends Closeable {
+    int getCount();
+
+    int getPosition();
+
+    boolean moveToFirst();
+
+    boolean moveToNext();
+
+    boolean moveToPosition(int position);
+
+    boolean isAfterLast();
+
+    int getColumnCount();
+
+    int getColumnIndex(String columnName);
+
+    int getColumnIndexOrThrow(String columnName);
+
+    String getColumnName(int columnIndex);
+
+    String[] getColumnNames();
+
+    String getString(int columnIndex);
+
+    int getInt(int columnIndex);
+
+    long getLong(int columnIndex);
+
+    double getDouble(int columnIndex);
+
+    boolean isNull(int columnIndex);
+
+    boolean isClosed();
+
+    @Override
+    void close();
+}
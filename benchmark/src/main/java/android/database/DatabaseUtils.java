@@ -0,0 +1,28 @@
+package android.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+public final class DatabaseUtils {
+    private DatabaseUtils() {
+    }
+
+    // The first column of the first row.
+    public static long longForQuery(SQLiteDatabase db, String query, String[] selectionArgs) {
+        try (SQLiteStatement statement = db.compileStatement(query)) {
+            statement.bindAllArgsAsStrings(selectionArgs);
+            return statement.simpleQueryForLong();
+        }
+    }
+
+    public static String stringForQuery(SQLiteDatabase db, String query, String[] selectionArgs) {
+        try (SQLiteStatement statement = db.compileStatement(query)) {
+            statement.bindAllArgsAsStrings(selectionArgs);
+            return statement.simpleQueryForString();
+        }
+    }
+
+    public static long queryNumEntries(SQLiteDatabase db, String table) {
+        return longForQuery(db, "SELECT COUNT(*) FROM " + table, null);
+    }
+}
@@ -0,0 +1,229 @@
+package android.database.sqlite;
+
+import android.database.Cursor;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+
+// JVM stand-in: rows are stepped out of the result set as the cursor moves past
+// them and kept, so moving back works like it does over a cursor window. Counting
+// the rows steps through all of them.
+public final class SQLiteCursor implements Cursor {
+    private final String sql;
+    private final String[] columnNames;
+    private final ArrayList<Object[]> rows = new ArrayList<>();
+    private PreparedStatement statement;
+    private ResultSet result;
+    private int position = -1;
+    private boolean closed;
+
+    private SQLiteCursor(String sql, PreparedStatement statement, ResultSet result) throws SQLException {
+        this.sql = sql;
+        this.statement = statement;
+        this.result = result;
+        ResultSetMetaData metaData = result.getMetaData();
+        columnNames = new String[metaData.getColumnCount()];
+        for (int i = 0; i < columnNames.length; i++) columnNames[i] = metaData.getColumnLabel(i + 1);
+    }
+
+    // Copies every row out first when the connection is about to be handed back.
+    static SQLiteCursor open(Connection connection, String sql, String[] selectionArgs, boolean copy) {
+        PreparedStatement statement = null;
+        try {
+            statement = connection.prepareStatement(sql);
+            SQLiteDatabase.bind(statement, selectionArgs);
+            SQLiteCursor cursor = new SQLiteCursor(sql, statement, statement.executeQuery());
+            if (copy) cursor.stepAll();
+            return cursor;
+        } catch (SQLException e) {
+            if (statement != null) {
+                try {
+                    statement.close();
+                } catch (SQLException ignored) {
+                }
+            }
+            throw SQLiteDatabase.wrap(e, sql);
+        }
+    }
+
+    private boolean step() {
+        if (result == null) return false;
+        try {
+            if (result.next()) {
+                Object[] row = new Object[columnNames.length];
+                for (int i = 0; i < row.length; i++) row[i] = result.getObject(i + 1);
+                rows.add(row);
+                return true;
+            }
+            release();
+            return false;
+        } catch (SQLException e) {
+            throw SQLiteDatabase.wrap(e, sql);
+        }
+    }
+
+    private void stepAll() {
+        while (step()) {
+        }
+    }
+
+    private void release() throws SQLException {
+        if (result != null) result.close();
+        if (statement != null) statement.close();
+        result = null;
+        statement = null;
+    }
+
+    @Override
+    public int getCount() {
+        stepAll();
+        return rows.size();
+    }
+
+    @Override
+    public int getPosition() {
+        return position;
+    }
+
+    @Override
+    public boolean moveToFirst() {
+        return moveToPosition(0);
+    }
+
+    @Override
+    public boolean moveToNext() {
+        return moveToPosition(position + 1);
+    }
+
+    @Override
+    public boolean moveToPosition(int position) {
+        if (position < 0) {
+            this.position = -1;
+            return false;
+        }
+        while (rows.size() <= position && step()) {
+        }
+        if (position >= rows.size()) {
+            this.position = rows.size();
+            return false;
+        }
+        this.position = position;
+        return true;
+    }
+
+    @Override
+    public boolean isAfterLast() {
+        int count = getCount();
+        return count == 0 || position == count;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    // Case-insensitive, and a qualified name matches on its last part.
+    @Override
+    public int getColumnIndex(String columnName) {
+        int dot = columnName.lastIndexOf('.');
+        if (dot != -1) columnName = columnName.substring(dot + 1);
+        for (int i = 0; i < columnNames.length; i++) {
+            if (columnNames[i].equalsIgnoreCase(columnName)) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public int getColumnIndexOrThrow(String columnName) {
+        int index = getColumnIndex(columnName);
+        if (index < 0) throw new IllegalArgumentException("column '" + columnName + "' does not exist");
+        return index;
+    }
+
+    @Override
+    public String getColumnName(int columnIndex) {
+        return columnNames[columnIndex];
+    }
+
+    @Override
+    public String[] getColumnNames() {
+        return columnNames.clone();
+    }
+
+    private Object value(int columnIndex) {
+        if (closed) throw new IllegalStateException("attempt to re-open an already-closed object: " + sql);
+        if (position < 0 || position >= rows.size()) {
+            throw new IllegalStateException("Index " + position + " requested, with a size of " + rows.size());
+        }
+        return rows.get(position)[columnIndex];
+    }
+
+    @Override
+    public String getString(int columnIndex) {
+        Object value = value(columnIndex);
+        if (value == null) return null;
+        if (value instanceof byte[]) return new String((byte[]) value);
+        return value.toString();
+    }
+
+    @Override
+    public int getInt(int columnIndex) {
+        return (int) getLong(columnIndex);
+    }
+
+    @Override
+    public long getLong(int columnIndex) {
+        Object value = value(columnIndex);
+        if (value == null) return 0;
+        if (value instanceof Number) return ((Number) value).longValue();
+        return (long) parse(value.toString());
+    }
+
+    @Override
+    public double getDouble(int columnIndex) {
+        Object value = value(columnIndex);
+        if (value == null) return 0;
+        if (value instanceof Number) return ((Number) value).doubleValue();
+        return parse(value.toString());
+    }
+
+    // Text reads as its leading number, or 0.
+    private static double parse(String text) {
+        int end = 0;
+        text = text.trim();
+        while (end < text.length() && "+-.0123456789eE".indexOf(text.charAt(end)) != -1) end++;
+        while (end > 0) {
+            try {
+                return Double.parseDouble(text.substring(0, end));
+            } catch (NumberFormatException e) {
+                end--;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean isNull(int columnIndex) {
+        return value(columnIndex) == null;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            release();
+        } catch (SQLException ignored) {
+        }
+        rows.clear();
+    }
+}
@@ -0,0 +1,376 @@
+package android.database.sqlite;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+
+import java.io.Closeable;
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+// JVM stand-in over sqlite-jdbc that keeps the connection model the app is written
+// against: one primary connection does every write and every transaction, one
+// thread at a time, and once write-ahead logging is on, reads from other threads
+// go through per-thread reader connections and see the last commit. Reads on the
+// primary connection are copied out before the lock is released; reads on a reader
+// connection step lazily, like a cursor window filling. Query arguments are bound
+// as text, as rawQuery binds them.
+public final class SQLiteDatabase implements Closeable {
+    public static final int CONFLICT_NONE = 0;
+    public static final int CONFLICT_ROLLBACK = 1;
+    public static final int CONFLICT_ABORT = 2;
+    public static final int CONFLICT_FAIL = 3;
+    public static final int CONFLICT_IGNORE = 4;
+    public static final int CONFLICT_REPLACE = 5;
+
+    private static final String[] CONFLICT_VALUES =
+            {"", " OR ROLLBACK", " OR ABORT", " OR FAIL", " OR IGNORE", " OR REPLACE"};
+
+    public interface CursorFactory {
+    }
+
+    private final String url;
+    private final boolean inMemory;
+    private final Connection primary;
+    private final ReentrantLock primaryLock = new ReentrantLock();
+    // Success flag of each nested transaction, innermost first. Only the lock holder
+    // touches it.
+    private final ArrayDeque<Boolean> transactions = new ArrayDeque<>();
+    private boolean transactionFailed;
+    private final ThreadLocal<Connection> readers = new ThreadLocal<>();
+    private final List<Connection> openReaders = Collections.synchronizedList(new ArrayList<>());
+    private volatile boolean walEnabled;
+    private volatile boolean open = true;
+
+    private SQLiteDatabase(File file) {
+        inMemory = file == null;
+        url = "jdbc:sqlite:" + (inMemory ? ":memory:" : file.getPath());
+        primary = connect();
+    }
+
+    public static SQLiteDatabase openOrCreateDatabase(File file, CursorFactory factory) {
+        return new SQLiteDatabase(file);
+    }
+
+    public static SQLiteDatabase create(CursorFactory factory) {
+        return new SQLiteDatabase(null);
+    }
+
+    private Connection connect() {
+        try {
+            Connection connection = DriverManager.getConnection(url);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA busy_timeout=5000");
+            }
+            return connection;
+        } catch (SQLException e) {
+            throw wrap(e, url);
+        }
+    }
+
+    static SQLiteException wrap(SQLException e, String sql) {
+        return new SQLiteException(e.getMessage() + " (" + sql + ")", e);
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        if (!open) return;
+        open = false;
+        synchronized (openReaders) {
+            for (Connection reader : openReaders) closeQuietly(reader);
+            openReaders.clear();
+        }
+        closeQuietly(primary);
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+        }
+    }
+
+    public boolean enableWriteAheadLogging() {
+        if (inMemory) return false;
+        execSQL("PRAGMA journal_mode=WAL");
+        walEnabled = true;
+        return true;
+    }
+
+    public boolean isWriteAheadLoggingEnabled() {
+        return walEnabled;
+    }
+
+    public void setForeignKeyConstraintsEnabled(boolean enable) {
+        execSQL("PRAGMA foreign_keys=" + (enable ? "ON" : "OFF"));
+    }
+
+    public int getVersion() {
+        return (int) compileAndQueryLong("PRAGMA user_version");
+    }
+
+    public void setVersion(int version) {
+        execSQL("PRAGMA user_version=" + version);
+    }
+
+    private long compileAndQueryLong(String sql) {
+        try (SQLiteStatement statement = compileStatement(sql)) {
+            return statement.simpleQueryForLong();
+        }
+    }
+
+    // Transactions
+
+    public void beginTransaction() {
+        begin("BEGIN EXCLUSIVE");
+    }
+
+    public void beginTransactionNonExclusive() {
+        begin("BEGIN IMMEDIATE");
+    }
+
+    private void begin(String sql) {
+        primaryLock.lock();
+        try {
+            if (transactions.isEmpty()) {
+                run(primary, sql);
+                transactionFailed = false;
+            }
+        } catch (RuntimeException e) {
+            primaryLock.unlock();
+            throw e;
+        }
+        transactions.push(Boolean.FALSE);
+    }
+
+    public void setTransactionSuccessful() {
+        checkInTransaction();
+        transactions.pop();
+        transactions.push(Boolean.TRUE);
+    }
+
+    public void endTransaction() {
+        checkInTransaction();
+        try {
+            if (!transactions.pop()) transactionFailed = true;
+            if (transactions.isEmpty()) run(primary, transactionFailed ? "ROLLBACK" : "COMMIT");
+        } finally {
+            primaryLock.unlock();
+        }
+    }
+
+    public boolean inTransaction() {
+        return primaryLock.isHeldByCurrentThread() && !transactions.isEmpty();
+    }
+
+    private void checkInTransaction() {
+        if (!inTransaction()) throw new IllegalStateException("Cannot perform this operation because there is no current transaction.");
+    }
+
+    private static void run(Connection connection, String sql) {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        } catch (SQLException e) {
+            throw wrap(e, sql);
+        }
+    }
+
+    // Connections
+
+    // Runs a write on the primary connection, waiting for any other thread's
+    // transaction to finish first.
+    <T> T onPrimary(PrimaryWork<T> work) {
+        primaryLock.lock();
+        try {
+            return work.run(primary);
+        } catch (SQLException e) {
+            throw new SQLiteException(e.getMessage(), e);
+        } finally {
+            primaryLock.unlock();
+        }
+    }
+
+    interface PrimaryWork<T> {
+        T run(Connection primary) throws SQLException;
+    }
+
+    // The connection a read from this thread would use, or null for the primary one.
+    Connection readerOrNull() {
+        if (!walEnabled || primaryLock.isHeldByCurrentThread()) return null;
+        Connection reader = readers.get();
+        if (reader == null) {
+            reader = connect();
+            readers.set(reader);
+            openReaders.add(reader);
+        }
+        return reader;
+    }
+
+    static void bind(PreparedStatement statement, Object[] args) throws SQLException {
+        if (args == null) return;
+        for (int i = 0; i < args.length; i++) {
+            Object arg = args[i];
+            if (arg == null) {
+                statement.setNull(i + 1, java.sql.Types.NULL);
+            } else if (arg instanceof String) {
+                statement.setString(i + 1, (String) arg);
+            } else if (arg instanceof Long || arg instanceof Integer || arg instanceof Short || arg instanceof Byte) {
+                statement.setLong(i + 1, ((Number) arg).longValue());
+            } else if (arg instanceof Boolean) {
+                statement.setLong(i + 1, (Boolean) arg ? 1 : 0);
+            } else if (arg instanceof Number) {
+                statement.setDouble(i + 1, ((Number) arg).doubleValue());
+            } else if (arg instanceof byte[]) {
+                statement.setBytes(i + 1, (byte[]) arg);
+            } else {
+                statement.setString(i + 1, arg.toString());
+            }
+        }
+    }
+
+    static long lastInsertRowId(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT last_insert_rowid()")) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+
+    // Statements
+
+    public void execSQL(String sql) {
+        execSQL(sql, null);
+    }
+
+    public void execSQL(String sql, Object[] bindArgs) {
+        onPrimary(primary -> {
+            try (PreparedStatement statement = primary.prepareStatement(sql)) {
+                bind(statement, bindArgs);
+                statement.execute();
+                return null;
+            } catch (SQLException e) {
+                throw wrap(e, sql);
+            }
+        });
+    }
+
+    public SQLiteStatement compileStatement(String sql) {
+        return new SQLiteStatement(this, sql);
+    }
+
+    public Cursor rawQuery(String sql, String[] selectionArgs) {
+        Connection reader = readerOrNull();
+        if (reader != null) return SQLiteCursor.open(reader, sql, selectionArgs, false);
+        return onPrimary(primary -> SQLiteCursor.open(primary, sql, selectionArgs, true));
+    }
+
+    public Cursor query(String table, String[] columns, String selection, String[] selectionArgs,
+                        String groupBy, String having, String orderBy) {
+        return query(table, columns, selection, selectionArgs, groupBy, having, orderBy, null);
+    }
+
+    public Cursor query(String table, String[] columns, String selection, String[] selectionArgs,
+                        String groupBy, String having, String orderBy, String limit) {
+        StringBuilder sql = new StringBuilder("SELECT ");
+        sql.append(columns == null || columns.length == 0 ? "*" : String.join(", ", columns));
+        sql.append(" FROM ").append(table);
+        appendClause(sql, " WHERE ", selection);
+        appendClause(sql, " GROUP BY ", groupBy);
+        appendClause(sql, " HAVING ", having);
+        appendClause(sql, " ORDER BY ", orderBy);
+        appendClause(sql, " LIMIT ", limit);
+        return rawQuery(sql.toString(), selectionArgs);
+    }
+
+    private static void appendClause(StringBuilder sql, String name, String clause) {
+        if (clause != null && !clause.isEmpty()) sql.append(name).append(clause);
+    }
+
+    public long insert(String table, String nullColumnHack, ContentValues values) {
+        try {
+            return insertWithOnConflict(table, nullColumnHack, values, CONFLICT_NONE);
+        } catch (SQLiteException e) {
+            android.util.Log.e("SQLiteDatabase", "Error inserting " + values, e);
+            return -1;
+        }
+    }
+
+    public long insertOrThrow(String table, String nullColumnHack, ContentValues values) {
+        return insertWithOnConflict(table, nullColumnHack, values, CONFLICT_NONE);
+    }
+
+    public long replace(String table, String nullColumnHack, ContentValues values) {
+        try {
+            return insertWithOnConflict(table, nullColumnHack, values, CONFLICT_REPLACE);
+        } catch (SQLiteException e) {
+            android.util.Log.e("SQLiteDatabase", "Error inserting " + values, e);
+            return -1;
+        }
+    }
+
+    public long insertWithOnConflict(String table, String nullColumnHack, ContentValues values, int conflictAlgorithm) {
+        StringBuilder sql = new StringBuilder("INSERT").append(CONFLICT_VALUES[conflictAlgorithm])
+                .append(" INTO ").append(table).append('(');
+        Object[] args = null;
+        if (values != null && values.size() > 0) {
+            args = new Object[values.size()];
+            int i = 0;
+            for (String column : values.keySet()) {
+                sql.append(i > 0 ? "," : "").append(column);
+                args[i++] = values.get(column);
+            }
+            sql.append(") VALUES (");
+            for (i = 0; i < args.length; i++) sql.append(i > 0 ? ",?" : "?");
+        } else {
+            sql.append(nullColumnHack).append(") VALUES (NULL");
+        }
+        sql.append(')');
+        try (SQLiteStatement statement = new SQLiteStatement(this, sql.toString(), args)) {
+            return statement.executeInsert();
+        }
+    }
+
+    public int update(String table, ContentValues values, String whereClause, String[] whereArgs) {
+        return updateWithOnConflict(table, values, whereClause, whereArgs, CONFLICT_NONE);
+    }
+
+    public int updateWithOnConflict(String table, ContentValues values, String whereClause,
+                                    String[] whereArgs, int conflictAlgorithm) {
+        if (values == null || values.size() == 0) throw new IllegalArgumentException("Empty values");
+        StringBuilder sql = new StringBuilder("UPDATE").append(CONFLICT_VALUES[conflictAlgorithm])
+                .append(' ').append(table).append(" SET ");
+        int whereCount = whereArgs == null ? 0 : whereArgs.length;
+        Object[] args = new Object[values.size() + whereCount];
+        int i = 0;
+        for (String column : values.keySet()) {
+            sql.append(i > 0 ? "," : "").append(column).append("=?");
+            args[i++] = values.get(column);
+        }
+        for (int w = 0; w < whereCount; w++) args[i++] = whereArgs[w];
+        appendClause(sql, " WHERE ", whereClause);
+        try (SQLiteStatement statement = new SQLiteStatement(this, sql.toString(), args)) {
+            return statement.executeUpdateDelete();
+        }
+    }
+
+    public int delete(String table, String whereClause, String[] whereArgs) {
+        StringBuilder sql = new StringBuilder("DELETE FROM ").append(table);
+        appendClause(sql, " WHERE ", whereClause);
+        try (SQLiteStatement statement = new SQLiteStatement(this, sql.toString(), whereArgs)) {
+            return statement.executeUpdateDelete();
+        }
+    }
+}
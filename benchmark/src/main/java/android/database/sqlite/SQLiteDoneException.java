@@ -0,0 +1,8 @@
+package android.database.sqlite;
+
+// A simple query returned no rows.
+public class SQLiteDoneException extends SQLiteException {
+    public SQLiteDoneException(String error) {
+        super(error);
+    }
+}
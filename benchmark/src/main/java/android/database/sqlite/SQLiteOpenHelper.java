@@ -0,0 +1,97 @@
+package android.database.sqlite;
+
+import android.content.Context;
+
+import java.io.File;
+
+// JVM stand-in with the framework's open sequence: onConfigure, then onCreate,
+// onUpgrade or onDowngrade in one transaction that also sets the version, then
+// onOpen. A null name opens an in-memory database.
+public abstract class SQLiteOpenHelper implements AutoCloseable {
+    private final Context context;
+    private final String name;
+    private final int version;
+    private SQLiteDatabase database;
+
+    public SQLiteOpenHelper(Context context, String name, SQLiteDatabase.CursorFactory factory, int version) {
+        if (version < 1) throw new IllegalArgumentException("Version must be >= 1, was " + version);
+        this.context = context;
+        this.name = name;
+        this.version = version;
+    }
+
+    public String getDatabaseName() {
+        return name;
+    }
+
+    public SQLiteDatabase getWritableDatabase() {
+        return getDatabase();
+    }
+
+    public SQLiteDatabase getReadableDatabase() {
+        return getDatabase();
+    }
+
+    private synchronized SQLiteDatabase getDatabase() {
+        if (database != null && database.isOpen()) return database;
+        SQLiteDatabase db;
+        if (name == null) {
+            db = SQLiteDatabase.create(null);
+        } else {
+            File path = context.getDatabasePath(name);
+            File parent = path.getParentFile();
+            if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+                throw new SQLiteException("Cannot create " + parent);
+            }
+            db = SQLiteDatabase.openOrCreateDatabase(path, null);
+        }
+        try {
+            onConfigure(db);
+            int current = db.getVersion();
+            if (current != version) {
+                db.beginTransaction();
+                try {
+                    if (current == 0) {
+                        onCreate(db);
+                    } else if (current > version) {
+                        onDowngrade(db, current, version);
+                    } else {
+                        onUpgrade(db, current, version);
+                    }
+                    db.setVersion(version);
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+            onOpen(db);
+        } catch (RuntimeException e) {
+            db.close();
+            throw e;
+        }
+        database = db;
+        return db;
+    }
+
+    public void onConfigure(SQLiteDatabase db) {
+    }
+
+    public abstract void onCreate(SQLiteDatabase db);
+
+    public abstract void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion);
+
+    public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        throw new SQLiteException("Can't downgrade database from version " + oldVersion + " to " + newVersion);
+    }
+
+    public void onOpen(SQLiteDatabase db) {
+    }
+
+    @Override
+    public synchronized void close() {
+        if (database != null) {
+            database.close();
+            database = null;
+        }
+    }
+}
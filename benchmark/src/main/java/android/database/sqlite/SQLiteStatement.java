@@ -0,0 +1,170 @@
+package android.database.sqlite;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+// JVM stand-in: the bindings live here, and the statement is prepared on whichever
+// connection runs it. Writes run on the primary connection, simple queries on this
+// thread's reader connection when there is one.
+public final class SQLiteStatement implements Closeable {
+    private final SQLiteDatabase database;
+    private final String sql;
+    private Object[] bindArgs;
+    private PreparedStatement primaryStatement;
+    private Connection readerConnection;
+    private PreparedStatement readerStatement;
+
+    SQLiteStatement(SQLiteDatabase database, String sql) {
+        this(database, sql, null);
+    }
+
+    SQLiteStatement(SQLiteDatabase database, String sql, Object[] bindArgs) {
+        this.database = database;
+        this.sql = sql.trim();
+        this.bindArgs = bindArgs == null ? new Object[0] : bindArgs.clone();
+    }
+
+    public void bindNull(int index) {
+        bind(index, null);
+    }
+
+    public void bindLong(int index, long value) {
+        bind(index, value);
+    }
+
+    public void bindDouble(int index, double value) {
+        bind(index, value);
+    }
+
+    public void bindString(int index, String value) {
+        if (value == null) throw new IllegalArgumentException("the bind value at index " + index + " is null");
+        bind(index, value);
+    }
+
+    public void bindBlob(int index, byte[] value) {
+        if (value == null) throw new IllegalArgumentException("the bind value at index " + index + " is null");
+        bind(index, value);
+    }
+
+    public void bindAllArgsAsStrings(String[] bindArgs) {
+        if (bindArgs == null) return;
+        for (int i = bindArgs.length; i != 0; i--) bindString(i, bindArgs[i - 1]);
+    }
+
+    public void clearBindings() {
+        Arrays.fill(bindArgs, null);
+    }
+
+    private void bind(int index, Object value) {
+        if (index < 1) throw new IllegalArgumentException("Cannot bind argument at index " + index);
+        if (index > bindArgs.length) bindArgs = Arrays.copyOf(bindArgs, index);
+        bindArgs[index - 1] = value;
+    }
+
+    private PreparedStatement bound(PreparedStatement statement) throws SQLException {
+        int count = statement.getParameterMetaData().getParameterCount();
+        if (bindArgs.length > count) {
+            throw new IllegalArgumentException("Too many bind arguments. " + bindArgs.length
+                    + " arguments were provided but the statement needs " + count + " arguments.");
+        }
+        SQLiteDatabase.bind(statement, bindArgs.length == count ? bindArgs : Arrays.copyOf(bindArgs, count));
+        return statement;
+    }
+
+    private PreparedStatement onPrimary(Connection primary) throws SQLException {
+        if (primaryStatement == null) primaryStatement = primary.prepareStatement(sql);
+        return bound(primaryStatement);
+    }
+
+    public void execute() {
+        database.onPrimary(primary -> {
+            try {
+                onPrimary(primary).execute();
+                return null;
+            } catch (SQLException e) {
+                throw SQLiteDatabase.wrap(e, sql);
+            }
+        });
+    }
+
+    public int executeUpdateDelete() {
+        return database.onPrimary(primary -> {
+            try {
+                return onPrimary(primary).executeUpdate();
+            } catch (SQLException e) {
+                throw SQLiteDatabase.wrap(e, sql);
+            }
+        });
+    }
+
+    // The row id of the inserted row, or -1 if nothing was inserted.
+    public long executeInsert() {
+        return database.onPrimary(primary -> {
+            try {
+                if (onPrimary(primary).executeUpdate() == 0) return -1L;
+                return SQLiteDatabase.lastInsertRowId(primary);
+            } catch (SQLException e) {
+                throw SQLiteDatabase.wrap(e, sql);
+            }
+        });
+    }
+
+    public long simpleQueryForLong() {
+        return simpleQuery(result -> result.getLong(1));
+    }
+
+    public String simpleQueryForString() {
+        return simpleQuery(result -> result.getString(1));
+    }
+
+    private interface Column<T> {
+        T read(ResultSet result) throws SQLException;
+    }
+
+    private <T> T simpleQuery(Column<T> column) {
+        Connection reader = database.readerOrNull();
+        if (reader == null) {
+            return database.onPrimary(primary -> firstRow(onPrimary(primary), column));
+        }
+        try {
+            if (reader != readerConnection) {
+                if (readerStatement != null) readerStatement.close();
+                readerStatement = reader.prepareStatement(sql);
+                readerConnection = reader;
+            }
+            return firstRow(bound(readerStatement), column);
+        } catch (SQLException e) {
+            throw SQLiteDatabase.wrap(e, sql);
+        }
+    }
+
+    private <T> T firstRow(PreparedStatement statement, Column<T> column) {
+        try (ResultSet result = statement.executeQuery()) {
+            if (!result.next()) throw new SQLiteDoneException("no rows returned (" + sql + ")");
+            return column.read(result);
+        } catch (SQLException e) {
+            throw SQLiteDatabase.wrap(e, sql);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (primaryStatement != null) primaryStatement.close();
+            if (readerStatement != null) readerStatement.close();
+        } catch (SQLException ignored) {
+        }
+        primaryStatement = null;
+        readerStatement = null;
+        readerConnection = null;
+    }
+
+    @Override
+    public String toString() {
+        return "SQLiteProgram: " + sql;
+    }
+}
@@ -0,0 +1,11 @@
+package android.os;
+
+// JVM stand-in for the one SystemClock call Metrics makes.
+public final class SystemClock {
+    private SystemClock() {
+    }
+
+    public static long elapsedRealtimeNanos() {
+        return System.nanoTime();
+    }
+}
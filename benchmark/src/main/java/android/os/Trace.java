@@ -0,0 +1,13 @@
+package android.os;
+
+// JVM stand-in for android.os.Trace; there is no systrace to write sections to.
+public final class Trace {
+    private Trace() {
+    }
+
+    public static void beginSection(String sectionName) {
+    }
+
+    public static void endSection() {
+    }
+}
@@ -0,0 +1,31 @@
+package android.util;
+
+// JVM stand-in: warnings and errors go to stderr, as logcat would show them; the
+// chattier levels are dropped so they cannot skew a benchmark.
+public final class Log {
+    private Log() {
+    }
+
+    public static int d(String tag, String msg) {
+        return 0;
+    }
+
+    public static int i(String tag, String msg) {
+        return 0;
+    }
+
+    public static int w(String tag, String msg) {
+        System.err.println("W/" + tag + ": " + msg);
+        return 0;
+    }
+
+    public static int e(String tag, String msg) {
+        System.err.println("E/" + tag + ": " + msg);
+        return 0;
+    }
+
+    public static int e(String tag, String msg, Throwable tr) {
+        System.err.println("E/" + tag + ": " + msg + ": " + tr);
+        return 0;
+    }
+}
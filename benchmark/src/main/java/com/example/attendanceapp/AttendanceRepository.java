@@ -0,0 +1,42 @@
+package com.example.attendanceapp;
+
+// JVM stand-in for the part of the app's AttendanceRepository that KeysetPager uses.
+// A read runs at once on the calling thread, which plays the main thread, and a
+// failure goes to the callback's onError as the real repository posts it.
+class AttendanceRepository {
+    public interface Callback<T> {
+        void onResult(T result);
+
+        default void onError(Exception e) {
+        }
+    }
+
+    interface Task<T> {
+        T run() throws Exception;
+    }
+
+    static <T> Callback<T> callback(Callback<T> onResult, Callback<Exception> onError) {
+        return new Callback<T>() {
+            @Override
+            public void onResult(T result) {
+                onResult.onResult(result);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                onError.onResult(e);
+            }
+        };
+    }
+
+    <T> void read(Task<T> task, Callback<T> callback) {
+        T result;
+        try {
+            result = task.run();
+        } catch (Exception e) {
+            callback.onError(e);
+            return;
+        }
+        callback.onResult(result);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.attendanceapp;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.Assert.assertEquals;
+
+public class AttendanceBitsTest {
+    // Every day from 1900 to 2100 against java.time, including the leap days and the
+    // days before the epoch.
+    @Test
+    public void matchesTheCivilCalendar() {
+        long last = LocalDate.of(2100, 12, 31).toEpochDay();
+        for (long epochDay = LocalDate.of(1900, 1, 1).toEpochDay(); epochDay <= last; epochDay++) {
+            LocalDate date = LocalDate.ofEpochDay(epochDay);
+            int monthKey = AttendanceBits.monthKey(epochDay);
+            assertEquals(date.toString(), date.getYear() * 12 + date.getMonthValue() - 1, monthKey);
+            assertEquals(date.toString(), 1 << (date.getDayOfMonth() - 1), AttendanceBits.dayBit(epochDay));
+            assertEquals(date.toString(), epochDay, AttendanceBits.epochDay(monthKey, date.getDayOfMonth()));
+        }
+    }
+
+    @Test
+    public void lastDayOfALongMonthIsBit30() {
+        long epochDay = LocalDate.of(2024, 1, 31).toEpochDay();
+        assertEquals(1 << 30, AttendanceBits.dayBit(epochDay));
+    }
+
+    @Test
+    public void countsDays() {
+        int presence = 0b1011_0111;
+        int status = 0b1001_0101 | 0b1_0000_0000; // A status bit without a mark counts for nothing
+        assertEquals(6, AttendanceBits.markedDays(presence));
+        assertEquals(4, AttendanceBits.presentDays(presence, status));
+        assertEquals(31, AttendanceBits.markedDays(0x7FFFFFFF));
+        assertEquals(0, AttendanceBits.presentDays(0, -1));
+    }
+}
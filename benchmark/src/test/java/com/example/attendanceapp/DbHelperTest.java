@@ -0,0 +1,223 @@
+package com.example.attendanceapp;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.LongSparseArray;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+// DbHelper on desktop SQLite, through the android.database stand-ins.
+public class DbHelperTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private DbHelper dbHelper;
+    private long cid;
+    private final long[] sids = new long[3];
+
+    @Before
+    public void setUp() throws Exception {
+        dbHelper = new DbHelper(new Context(folder.getRoot()));
+        cid = dbHelper.addClass("MBA Tech", "MAD");
+        for (int i = 0; i < sids.length; i++) sids[i] = dbHelper.addStudent(cid, 101 + i, "STUDENT " + i);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+    }
+
+    @Test
+    public void addUpdateAndGetStatus() {
+        long date = LocalDate.of(2024, 3, 1).toEpochDay();
+        assertNull(dbHelper.getStatus(sids[0], cid, date, DbHelper.FIRST_PERIOD));
+        dbHelper.addStatus(sids[0], cid, date, DbHelper.FIRST_PERIOD, "P");
+        assertEquals("P", dbHelper.getStatus(sids[0], cid, date, DbHelper.FIRST_PERIOD));
+        assertEquals(1, dbHelper.updateStatus(sids[0], cid, date, DbHelper.FIRST_PERIOD, "A"));
+        assertEquals("A", dbHelper.getStatus(sids[0], cid, date, DbHelper.FIRST_PERIOD));
+        assertNull(dbHelper.getStatus(sids[1], cid, date, DbHelper.FIRST_PERIOD));
+    }
+
+    @Test
+    public void saveMarksTheRestOfTheClassAbsent() {
+        long date = LocalDate.of(2024, 3, 1).toEpochDay();
+        LongSparseArray<String> sheet = new LongSparseArray<>();
+        sheet.put(sids[0], "P");
+        dbHelper.saveStatuses(cid, date, DbHelper.FIRST_PERIOD, sheet, true);
+        LongSparseArray<String> statuses = dbHelper.getStatusesForClass(cid, date, DbHelper.FIRST_PERIOD);
+        assertEquals(3, statuses.size());
+        assertEquals("P", statuses.get(sids[0]));
+        assertEquals("A", statuses.get(sids[1]));
+        assertEquals("A", statuses.get(sids[2]));
+
+        sheet.put(sids[1], "P");
+        dbHelper.saveStatuses(cid, date, DbHelper.FIRST_PERIOD, sheet, true);
+        assertEquals("P", dbHelper.getStatus(sids[1], cid, date, DbHelper.FIRST_PERIOD));
+        int[] counts = dbHelper.getSummariesForClass(cid).get(sids[1]);
+        assertEquals(1, counts[0]);
+        assertEquals(1, counts[1]);
+        assertEquals(0, dbHelper.countStaleSummaries());
+    }
+
+    // Compacting a class's months into masks and expanding them again changes nothing a
+    // reader sees, including the 31st and the first of the next month, and the masks'
+    // popcounts agree with the counters.
+    @Test
+    public void compactAndExpandAreLossless() {
+        long first = LocalDate.of(2024, 1, 29).toEpochDay();
+        for (long date = first; date < first + 5; date++) {
+            for (int i = 0; i < sids.length; i++) {
+                dbHelper.addStatus(sids[i], cid, date, DbHelper.FIRST_PERIOD, (date + i) % 2 == 0 ? "P" : "A");
+            }
+        }
+        List<String> range = rows(dbHelper.getStatusRange(cid, first - 1, first + 5));
+        List<String> matrix = rows(dbHelper.getAttendanceMatrix(cid, first - 1, first + 5));
+        assertEquals(5 * sids.length, dbHelper.compactStatuses(cid, AttendanceBits.monthKey(first + 4) + 1));
+        assertEquals(range, rows(dbHelper.getStatusRange(cid, first - 1, first + 5)));
+        assertEquals(matrix, rows(dbHelper.getAttendanceMatrix(cid, first - 1, first + 5)));
+        assertEquals(1, dbHelper.getMarkedPeriods(cid, first + 2).length);
+
+        LongSparseArray<int[]> summaries = dbHelper.getBitsSummaries(cid,
+                AttendanceBits.monthKey(first), AttendanceBits.monthKey(first + 4));
+        for (long sid : sids) {
+            int[] counts = dbHelper.getSummariesForClass(cid).get(sid);
+            assertEquals(counts[0], summaries.get(sid)[0]);
+            assertEquals(counts[1], summaries.get(sid)[1]);
+        }
+
+        assertEquals(5 * sids.length, dbHelper.expandStatuses(cid));
+        assertEquals(0, dbHelper.getBitsSummaries(cid, 0, Integer.MAX_VALUE).size());
+        assertEquals(range, rows(dbHelper.getStatusRange(cid, first - 1, first + 5)));
+        assertEquals(matrix, rows(dbHelper.getAttendanceMatrix(cid, first - 1, first + 5)));
+        assertEquals(0, dbHelper.countStaleSummaries());
+    }
+
+    // A report stepping through a range holds a WAL snapshot on a reader connection. A
+    // save on the writer commits meanwhile, and the report keeps seeing the marks as
+    // they were when it began. Without WAL the stand-ins read on the writer's connection
+    // instead, which is why the journal mode is checked first.
+    @Test
+    public void longReadDoesNotBlockSaves() throws Exception {
+        assertEquals("wal", DatabaseUtils.stringForQuery(dbHelper.getReadableDatabase(), "PRAGMA journal_mode", null));
+        long first = LocalDate.of(2024, 3, 1).toEpochDay();
+        LongSparseArray<String> sheet = new LongSparseArray<>();
+        for (long sid : sids) sheet.put(sid, "P");
+        for (long day = first; day < first + 30; day++) {
+            dbHelper.saveStatuses(cid, day, DbHelper.FIRST_PERIOD, sheet, false);
+        }
+
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        Cursor report = dbHelper.getStatusRange(cid, first, first + 30);
+        try {
+            assertTrue(report.moveToNext()); // The snapshot is taken here
+            writer.submit(() -> dbHelper.saveStatuses(cid, first + 30, DbHelper.FIRST_PERIOD, sheet, false))
+                    .get(5, TimeUnit.SECONDS);
+            int rows = 1;
+            while (report.moveToNext()) rows++;
+            assertEquals(30 * sids.length, rows);
+        } finally {
+            report.close();
+            writer.shutdown();
+        }
+        assertEquals(31 * sids.length, rows(dbHelper.getStatusRange(cid, first, first + 30)).size());
+    }
+
+    private static List<String> rows(Cursor cursor) {
+        List<String> rows = new ArrayList<>();
+        try {
+            while (cursor.moveToNext()) {
+                StringBuilder row = new StringBuilder();
+                for (int i = 0; i < cursor.getColumnCount(); i++) row.append(cursor.getString(i)).append('|');
+                rows.add(row.toString());
+            }
+        } finally {
+            cursor.close();
+        }
+        return rows;
+    }
+
+    // Archiving months into masks and thawing them back on a write keeps every mark and
+    // the counters, including the 31st and the first of the next month.
+    @Test
+    public void archiveAndThawAreLossless() {
+        long first = LocalDate.of(2024, 1, 29).toEpochDay();
+        for (long date = first; date < first + 5; date++) {
+            for (int i = 0; i < sids.length; i++) {
+                dbHelper.addStatus(sids[i], cid, date, DbHelper.FIRST_PERIOD, (date + i) % 2 == 0 ? "P" : "A");
+            }
+        }
+        int[] before = dbHelper.getSummariesForClass(cid).get(sids[0]);
+        assertEquals(5 * sids.length, dbHelper.archiveStatuses(AttendanceBits.monthKey(first + 5) + 1));
+        int[] after = dbHelper.getSummariesForClass(cid).get(sids[0]);
+        assertEquals(before[0], after[0]);
+        assertEquals(before[1], after[1]);
+        assertEquals(0, dbHelper.countStaleSummaries());
+
+        for (long date = first; date < first + 5; date++) {
+            assertEquals(1, dbHelper.updateStatus(sids[2], cid, date, DbHelper.FIRST_PERIOD, "A"));
+        }
+        for (long date = first; date < first + 5; date++) {
+            for (int i = 0; i < sids.length; i++) {
+                String expected = i == 2 || (date + i) % 2 != 0 ? "A" : "P";
+                assertEquals(expected, dbHelper.getStatus(sids[i], cid, date, DbHelper.FIRST_PERIOD));
+            }
+        }
+        assertEquals(0, dbHelper.countStaleSummaries());
+    }
+
+    // A database as version 2 shipped it, with dd.MM.yyyy dates and no periods, comes
+    // through every upgrade step with its marks and counters.
+    @Test
+    public void upgradesAVersionTwoDatabase() throws Exception {
+        Context context = new Context(folder.newFolder("legacy"));
+        File path = context.getDatabasePath("Attendance.db");
+        path.getParentFile().mkdirs();
+        SQLiteDatabase legacy = SQLiteDatabase.openOrCreateDatabase(path, null);
+        legacy.execSQL("CREATE TABLE CLASS_TABLE( _CID INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL," +
+                " CLASS_NAME TEXT NOT NULL, SUBJECT_NAME TEXT NOT NULL, UNIQUE (CLASS_NAME,SUBJECT_NAME));");
+        legacy.execSQL("CREATE TABLE STUDENT_TABLE( _SID INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL," +
+                " _CID INTEGER NOT NULL, STUDENT_NAME TEXT NOT NULL, ROLL INTEGER," +
+                " FOREIGN KEY ( _CID) REFERENCES CLASS_TABLE(_CID));");
+        legacy.execSQL("CREATE TABLE STATUS_TABLE(_STATUS_ID INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL," +
+                " _SID INTEGER NOT NULL, _CID INTEGER NOT NULL, STATUS_DATE DATE NOT NULL, STATUS TEXT NOT NULL," +
+                " UNIQUE (_SID,STATUS_DATE), FOREIGN KEY (_SID) REFERENCES STUDENT_TABLE( _SID)," +
+                " FOREIGN KEY (_CID) REFERENCES CLASS_TABLE( _CID));");
+        legacy.execSQL("INSERT INTO CLASS_TABLE VALUES (1, 'MBA Tech', 'MAD')");
+        legacy.execSQL("INSERT INTO STUDENT_TABLE VALUES (1, 1, 'STUDENT 0', 101), (2, 1, 'STUDENT 1', 102)");
+        legacy.execSQL("INSERT INTO STATUS_TABLE(_SID, _CID, STATUS_DATE, STATUS) VALUES" +
+                " (1, 1, '01.03.2024', 'P'), (2, 1, '01.03.2024', 'A'), (1, 1, '04.03.2024', 'P')");
+        legacy.setVersion(2);
+        legacy.close();
+
+        DbHelper upgraded = new DbHelper(context);
+        try {
+            long date = LocalDate.of(2024, 3, 1).toEpochDay();
+            assertEquals("P", upgraded.getStatus(1, 1, date, DbHelper.FIRST_PERIOD));
+            assertEquals("A", upgraded.getStatus(2, 1, date, DbHelper.FIRST_PERIOD));
+            int[] counts = upgraded.getSummariesForClass(1).get(1);
+            assertEquals(2, counts[0]);
+            assertEquals(2, counts[1]);
+            assertEquals(0, upgraded.countStaleSummaries());
+        } finally {
+            upgraded.close();
+        }
+    }
+}
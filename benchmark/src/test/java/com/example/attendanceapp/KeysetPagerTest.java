@@ -0,0 +1,111 @@
+package com.example.attendanceapp;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// KeysetPager over DbHelper.getStudentPage for a class of 50,000 students, scrolled a
+// row at a time from the top to the bottom and back with the student screen's page
+// size and window bound.
+public class KeysetPagerTest {
+    private static final int STUDENTS = 50000;
+    private static final int PAGE_SIZE = 50;
+    private static final int MAX_ITEMS = 200;
+    private static final int VISIBLE = 12;
+
+    @ClassRule
+    public static final TemporaryFolder folder = new TemporaryFolder();
+
+    private static DbHelper dbHelper;
+    private static long cid;
+
+    private int pageLoads;
+
+    @BeforeClass
+    public static void setUpClass() {
+        dbHelper = new DbHelper(new Context(folder.getRoot()));
+        cid = dbHelper.addClass("MBA Tech", "MAD");
+        ArrayList<StudentItem> roster = new ArrayList<>(STUDENTS);
+        for (int roll = 1; roll <= STUDENTS; roll++) roster.add(new StudentItem(0, roll, "STUDENT " + roll));
+        dbHelper.importRoster(cid, roster, "hash");
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        dbHelper.close();
+    }
+
+    // AttendanceRepository.studentPages without its cache.
+    private KeysetPager.PageLoader<StudentItem> studentPages() {
+        return (anchor, forward, limit) -> {
+            pageLoads++;
+            ArrayList<StudentItem> page = new ArrayList<>();
+            Cursor cursor = dbHelper.getStudentPage(cid, anchor == null ? Integer.MIN_VALUE : anchor.getRoll(), forward, limit);
+            try {
+                while (cursor.moveToNext()) {
+                    page.add(new StudentItem(cursor.getLong(cursor.getColumnIndex(DbHelper.S_ID)),
+                            cursor.getInt(cursor.getColumnIndex(DbHelper.STUDENT_ROLL_KEY)),
+                            cursor.getString(cursor.getColumnIndex(DbHelper.STUDENT_NAME_KEY))));
+                }
+            } finally {
+                cursor.close();
+            }
+            if (!forward) Collections.reverse(page);
+            return page;
+        };
+    }
+
+    @Test
+    public void scrollsTheWholeClassInABoundedWindow() {
+        KeysetPager<StudentItem> pager = new KeysetPager<>(new AttendanceRepository(), studentPages(),
+                PAGE_SIZE, MAX_ITEMS, () -> { });
+        List<StudentItem> window = pager.getWindow();
+        pager.refresh();
+        assertEquals(PAGE_SIZE, window.size());
+
+        int largest = 0;
+        int top = 1;
+        while (top + VISIBLE - 1 < STUDENTS) {
+            show(pager, window, ++top);
+            largest = Math.max(largest, window.size());
+        }
+        assertTrue(pager.isAtEnd());
+        assertEquals(STUDENTS, window.get(window.size() - 1).getRoll());
+        int forwardLoads = pageLoads;
+        assertEquals(STUDENTS / PAGE_SIZE + 1, forwardLoads); // The last page is full, so an empty one ends it
+
+        while (top > 1) {
+            show(pager, window, --top);
+            largest = Math.max(largest, window.size());
+        }
+        assertEquals(1, window.get(0).getRoll());
+        assertEquals(MAX_ITEMS, largest);
+        // Backward, the window drops a page off the bottom and reads one above per page
+        assertTrue(pageLoads - forwardLoads <= STUDENTS / PAGE_SIZE);
+    }
+
+    // Reports the rows from roll top on as visible, as the scroll listener does, and
+    // checks that they are in the window and that it holds one contiguous run of rolls.
+    private static void show(KeysetPager<StudentItem> pager, List<StudentItem> window, int top) {
+        int first = top - window.get(0).getRoll();
+        pager.onVisibleRange(first, first + VISIBLE - 1);
+        int firstRoll = window.get(0).getRoll();
+        int lastRoll = window.get(window.size() - 1).getRoll();
+        assertEquals(window.size(), lastRoll - firstRoll + 1);
+        assertTrue(top + " not in " + firstRoll + ".." + lastRoll,
+                firstRoll <= top && Math.min(top + VISIBLE - 1, STUDENTS) <= lastRoll);
+        assertTrue(window.size() <= MAX_ITEMS);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.attendanceapp;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsTest {
+    @After
+    public void tearDown() {
+        Metrics.setEnabled(false);
+        Metrics.reset();
+    }
+
+    // Each value lands in a bucket whose lower bound is within 12.5% below it, and
+    // buckets are ordered by value.
+    @Test
+    public void bucketsBoundTheirValues() {
+        int buckets = new Metrics.Histogram().counts.length();
+        for (int i = 0; i < 100000; i++) {
+            long value = ThreadLocalRandom.current().nextLong(Long.MAX_VALUE) >>> ThreadLocalRandom.current().nextInt(63);
+            checkBucket(value, buckets);
+        }
+        for (int shift = 0; shift < 63; shift++) {
+            checkBucket(1L << shift, buckets);
+            checkBucket((1L << shift) - 1, buckets);
+            checkBucket((1L << shift) + 1, buckets);
+        }
+        checkBucket(Long.MAX_VALUE, buckets);
+    }
+
+    private static void checkBucket(long value, int buckets) {
+        int bucket = Metrics.Histogram.bucket(value);
+        assertTrue(value + " -> " + bucket, bucket >= 0 && bucket < buckets);
+        long lower = Metrics.Histogram.lowerBound(bucket);
+        assertTrue(value + " below " + lower, lower <= value);
+        assertTrue(value + " far above " + lower, value - lower <= value / 8);
+        if (bucket + 1 < buckets) {
+            assertTrue(value + " above the next bucket", value < Metrics.Histogram.lowerBound(bucket + 1));
+        }
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        for (int value = 0; value < 16; value++) {
+            assertEquals(value, Metrics.Histogram.lowerBound(Metrics.Histogram.bucket(value)));
+        }
+    }
+
+    @Test
+    public void percentilesOfAUniformRun() {
+        Metrics.Histogram histogram = new Metrics.Histogram();
+        for (int value = 1; value <= 1000; value++) histogram.record(value * 1000L);
+        assertEquals(1000, histogram.count.get());
+        assertEquals(1000000, histogram.max.get());
+        assertEquals(500500000, histogram.total.get());
+        assertWithinBucket(500000, histogram.percentile(0.50));
+        assertWithinBucket(900000, histogram.percentile(0.90));
+        assertWithinBucket(990000, histogram.percentile(0.99));
+    }
+
+    private static void assertWithinBucket(long expected, long percentile) {
+        assertTrue(expected + " vs " + percentile, percentile <= expected && expected - percentile <= expected / 8);
+    }
+
+    @Test
+    public void negativeDurationsCountAsZero() {
+        Metrics.Histogram histogram = new Metrics.Histogram();
+        histogram.record(-5);
+        assertEquals(1, histogram.counts.get(0));
+        assertEquals(0, histogram.percentile(1.0));
+    }
+
+    @Test
+    public void concurrentRecordsAreAllCounted() throws InterruptedException {
+        Metrics.Histogram histogram = new Metrics.Histogram();
+        ArrayList<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long offset = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 100000; i++) histogram.record(i * 4 + offset);
+            }));
+        }
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) thread.join();
+        assertEquals(400000, histogram.count.get());
+        assertEquals(399999, histogram.max.get());
+    }
+
+    @Test
+    public void sectionsNestAndStopWhenDisabled() {
+        assertEquals(0, Metrics.start("off"));
+        Metrics.setEnabled(true);
+        long outer = Metrics.start("outer");
+        long inner = Metrics.start("inner");
+        Metrics.stop(inner);
+        Metrics.stop(outer);
+        Metrics.record("span", 2000);
+        String report = Metrics.report();
+        assertTrue(report, report.contains("outer"));
+        assertTrue(report, report.contains("inner"));
+        assertTrue(report, report.contains("span"));
+        assertTrue(report, !report.contains("off"));
+    }
+
+    @Test
+    public void countersAreReportedWhenEnabled() {
+        Metrics.count("off");
+        Metrics.setEnabled(true);
+        Metrics.count("StatusPrefetcher.hit");
+        Metrics.count("StatusPrefetcher.hit");
+        Metrics.count("StatusPrefetcher.miss");
+        String report = Metrics.report();
+        assertTrue(report, report.matches("(?s).*StatusPrefetcher\\.hit +2\\n.*"));
+        assertTrue(report, report.matches("(?s).*StatusPrefetcher\\.miss +1\\n.*"));
+        assertTrue(report, !report.contains("off"));
+        Metrics.reset();
+        assertTrue(Metrics.report(), !Metrics.report().contains("StatusPrefetcher"));
+    }
+}
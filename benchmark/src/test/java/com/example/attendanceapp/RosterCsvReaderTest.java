@@ -0,0 +1,169 @@
+package com.example.attendanceapp;
+
+import org.junit.Test;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RosterCsvReaderTest {
+    private static RosterCsvReader reader(String csv) {
+        return new RosterCsvReader(new StringReader(csv));
+    }
+
+    @Test
+    public void stripsByteOrderMarkAndKeepsTrailingEmptyColumns() throws IOException {
+        RosterCsvReader csv = reader("\uFEFFClass,Roll. No.,Student Name ,Subjects,,,,\r\nMBA Tech,113,SAHIL PS,MAD,,,,\r\n");
+        assertTrue(csv.nextRow());
+        assertEquals(8, csv.getFieldCount());
+        assertEquals("Class", csv.getString(0));
+        assertEquals("Student Name", csv.getString(2));
+        assertTrue(csv.nextRow());
+        assertEquals(8, csv.getFieldCount());
+        assertEquals(113, csv.getInt(1));
+        assertEquals("", csv.getString(7));
+        assertFalse(csv.nextRow());
+    }
+
+    @Test
+    public void lastRowWithoutLineBreak() throws IOException {
+        RosterCsvReader csv = reader("a,b\nc,d");
+        assertTrue(csv.nextRow());
+        assertTrue(csv.nextRow());
+        assertEquals("d", csv.getString(1));
+        assertFalse(csv.nextRow());
+    }
+
+    @Test
+    public void blankLineIsOneEmptyField() throws IOException {
+        RosterCsvReader csv = reader("a\n\nb\n");
+        assertTrue(csv.nextRow());
+        assertTrue(csv.nextRow());
+        assertEquals(1, csv.getFieldCount());
+        assertEquals("", csv.getString(0));
+        assertTrue(csv.nextRow());
+        assertEquals("b", csv.getString(0));
+    }
+
+    @Test
+    public void quotedFields() throws IOException {
+        RosterCsvReader csv = reader("\"Patil, Rishikesh\",  \"say \"\"hi\"\"\"  ,\"\"\n");
+        assertTrue(csv.nextRow());
+        assertNull(csv.getRowError());
+        assertEquals(3, csv.getFieldCount());
+        assertEquals("Patil, Rishikesh", csv.getString(0));
+        assertEquals("say \"hi\"", csv.getString(1));
+        assertEquals("", csv.getString(2));
+    }
+
+    // Spaces inside quotes are data; only those around the quotes are dropped.
+    @Test
+    public void keepsSpacesInsideQuotes() throws IOException {
+        RosterCsvReader csv = reader("\"  padded  \",  \"  padded  \"  ,\"  \",  unquoted  \n");
+        assertTrue(csv.nextRow());
+        assertEquals(4, csv.getFieldCount());
+        assertEquals("  padded  ", csv.getString(0));
+        assertEquals("  padded  ", csv.getString(1));
+        assertTrue(csv.fieldEqualsIgnoreCase(1, "  PADDED  "));
+        assertFalse(csv.fieldEqualsIgnoreCase(1, "padded"));
+        assertEquals("  ", csv.getString(2));
+        assertEquals("unquoted", csv.getString(3));
+    }
+
+    @Test
+    public void quoteInsideUnquotedFieldIsText() throws IOException {
+        RosterCsvReader csv = reader("O\"Brien,1\n");
+        assertTrue(csv.nextRow());
+        assertEquals("O\"Brien", csv.getString(0));
+    }
+
+    @Test
+    public void lineNumbersCountBreaksInsideQuotes() throws IOException {
+        RosterCsvReader csv = reader("a\r\n\"two\nlines\",b\r\nc\n");
+        assertTrue(csv.nextRow());
+        assertEquals(1, csv.getLineNumber());
+        assertTrue(csv.nextRow());
+        assertEquals(2, csv.getLineNumber());
+        assertEquals("two\nlines", csv.getString(0));
+        assertTrue(csv.nextRow());
+        assertEquals(4, csv.getLineNumber());
+    }
+
+    @Test
+    public void unterminatedQuoteIsReportedOnItsRow() throws IOException {
+        RosterCsvReader csv = reader("ok,1\nbad,\"open\n");
+        assertTrue(csv.nextRow());
+        assertNull(csv.getRowError());
+        assertTrue(csv.nextRow());
+        assertEquals("unterminated quoted field", csv.getRowError());
+        assertEquals(2, csv.getLineNumber());
+        assertFalse(csv.nextRow());
+    }
+
+    @Test
+    public void parsesIntColumns() throws IOException {
+        RosterCsvReader csv = reader(" 42 ,-7,+3,2147483647,-2147483648,2147483648,12a,,-, 9 9\n");
+        assertTrue(csv.nextRow());
+        assertEquals(42, csv.getInt(0));
+        assertEquals(-7, csv.getInt(1));
+        assertEquals(3, csv.getInt(2));
+        assertEquals(Integer.MAX_VALUE, csv.getInt(3));
+        assertEquals(Integer.MIN_VALUE, csv.getInt(4));
+        for (int i = 5; i < csv.getFieldCount(); i++) {
+            assertEquals("column " + i, RosterCsvReader.INVALID_INT, csv.getInt(i));
+        }
+    }
+
+    @Test
+    public void comparesFieldsIgnoringCaseAndSpaces() throws IOException {
+        RosterCsvReader csv = reader("  mba tech ,MAD\n");
+        assertTrue(csv.nextRow());
+        assertTrue(csv.fieldEqualsIgnoreCase(0, "MBA Tech"));
+        assertFalse(csv.fieldEqualsIgnoreCase(0, "MBA"));
+        assertFalse(csv.fieldEqualsIgnoreCase(1, "MAT"));
+    }
+
+    // Rows longer than the row buffer, with more fields than it starts with, spread
+    // over several reads of the char buffer.
+    @Test
+    public void growsPastItsBuffers() throws IOException {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            if (i > 0) line.append(',');
+            line.append(i);
+        }
+        String row = line.toString();
+        RosterCsvReader csv = reader(row + "\n" + row + "\n");
+        for (int r = 0; r < 2; r++) {
+            assertTrue(csv.nextRow());
+            assertEquals(3000, csv.getFieldCount());
+            for (int i = 0; i < 3000; i++) assertEquals(i, csv.getInt(i));
+        }
+        assertFalse(csv.nextRow());
+    }
+
+    @Test
+    public void readsTheBundledRoster() throws IOException {
+        int students = 0;
+        try (Reader file = new InputStreamReader(new FileInputStream(System.getProperty("roster")),
+                StandardCharsets.UTF_8); RosterCsvReader csv = new RosterCsvReader(file)) {
+            assertTrue(csv.nextRow());
+            assertEquals("Class", csv.getString(0)); // No byte order mark left on the header
+            while (csv.nextRow()) {
+                assertNull(csv.getRowError());
+                assertEquals(8, csv.getFieldCount());
+                assertTrue("line " + csv.getLineNumber(), csv.getInt(1) != RosterCsvReader.INVALID_INT);
+                students++;
+            }
+        }
+        assertTrue(students > 0);
+    }
+}
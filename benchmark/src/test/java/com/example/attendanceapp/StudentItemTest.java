@@ -0,0 +1,70 @@
+package com.example.attendanceapp;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+// StudentAdapter.onBindViewHolder reads only what StudentItem already holds: the roll
+// and percentage texts are built when the values change, and the status is a byte
+// that indexes the labels and colours.
+public class StudentItemTest {
+    private static final int[] STATUS_COLORS = {0xFFFFFFFF, 0xFF00C853, 0xFFD50000};
+    private static final int SELECTED_COLOR = 0xFF9E9E9E;
+    private static final int BINDS = 100000;
+
+    private final Object[] texts = new Object[4];
+    private int color;
+
+    // What the adapter's bind hands to the views, without the views.
+    private void bind(StudentItem student) {
+        texts[0] = student.getRollText();
+        texts[1] = student.getName();
+        texts[2] = StudentItem.statusLabel(student.getStatus());
+        texts[3] = student.getPercentageText();
+        color = student.isSelected() ? SELECTED_COLOR : STATUS_COLORS[student.getStatus()];
+    }
+
+    @Test
+    public void bindAllocatesNothing() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled());
+
+        StudentItem[] students = new StudentItem[50];
+        for (int i = 0; i < students.length; i++) {
+            students[i] = new StudentItem(i, 100 + i, "STUDENT " + i);
+            students[i].setStatus((byte) (i % 3));
+            students[i].setCounts(i, 60);
+            students[i].setSelected(i % 7 == 0);
+        }
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < 20000; i++) bind(students[i % students.length]); // Past the interpreter
+        long overhead = allocations.getThreadAllocatedBytes(thread);
+        overhead = allocations.getThreadAllocatedBytes(thread) - overhead;
+
+        long before = allocations.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < BINDS; i++) bind(students[i % students.length]);
+        long allocated = allocations.getThreadAllocatedBytes(thread) - before - overhead;
+        // A compilation can land in the loop and allocate a few bytes on this thread; a
+        // single object per bind would be 16 bytes or more each time
+        assertTrue(allocated + " bytes allocated by " + BINDS + " binds", allocated < BINDS);
+    }
+
+    @Test
+    public void textsAreBuiltOnceAndCopied() {
+        StudentItem student = new StudentItem(1, 104, "STUDENT");
+        student.setCounts(3, 4);
+        assertEquals("104", student.getRollText());
+        assertEquals("75%", student.getPercentageText());
+        assertSame(student.getRollText(), student.getRollText());
+        StudentItem copy = student.copy();
+        assertSame(student.getRollText(), copy.getRollText());
+        assertSame(student.getPercentageText(), copy.getPercentageText());
+    }
+}
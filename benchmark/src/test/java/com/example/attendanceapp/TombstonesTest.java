@@ -0,0 +1,76 @@
+package com.example.attendanceapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TombstonesTest {
+    private final Tombstones<Long> tombstones = new Tombstones<>(id -> id);
+
+    private static ArrayList<Long> window(long... ids) {
+        ArrayList<Long> window = new ArrayList<>();
+        for (long id : ids) window.add(id);
+        return window;
+    }
+
+    private static HashSet<Long> ids(Long... ids) {
+        return new HashSet<>(Arrays.asList(ids));
+    }
+
+    @Test
+    public void buryTakesRowsOutAndRestorePutsThemBack() {
+        ArrayList<Long> window = window(1, 2, 3, 4, 5, 6);
+        assertEquals(3, tombstones.bury(window, ids(1L, 4L, 6L)));
+        assertFalse(tombstones.isEmpty());
+        assertEquals(window(2, 3, 5), window);
+        tombstones.restore(window);
+        assertEquals(window(1, 2, 3, 4, 5, 6), window);
+        assertTrue(tombstones.isEmpty());
+    }
+
+    // Ids of selected rows that were paged out are deleted too, though only rows count.
+    @Test
+    public void releaseIncludesIdsWithoutRows() {
+        ArrayList<Long> window = window(1, 2, 3);
+        assertEquals(1, tombstones.bury(window, ids(2L, 99L)));
+        assertEquals(window(1, 3), window);
+        long[] released = tombstones.release();
+        Arrays.sort(released);
+        assertArrayEquals(new long[]{2, 99}, released);
+        assertTrue(tombstones.isEmpty());
+        tombstones.restore(window); // Nothing left to put back
+        assertEquals(window(1, 3), window);
+    }
+
+    @Test
+    public void buryingRowsAlreadyGoneCountsNone() {
+        ArrayList<Long> window = window(1, 3);
+        assertEquals(0, tombstones.bury(window, ids(2L)));
+        assertEquals(window(1, 3), window);
+    }
+
+    @Test
+    public void filterDropsRowsAPageBroughtBack() {
+        ArrayList<Long> window = window(1, 2, 3);
+        tombstones.bury(window, ids(2L, 5L));
+        window.addAll(window(4, 5, 6));
+        tombstones.filter(window);
+        assertEquals(window(1, 3, 4, 6), window);
+    }
+
+    @Test
+    public void restoreClampsToAShrunkWindow() {
+        ArrayList<Long> window = window(1, 2, 3, 4, 5);
+        tombstones.bury(window, ids(5L));
+        window.subList(2, window.size()).clear(); // Paged out meanwhile
+        tombstones.restore(window);
+        assertEquals(window(1, 2, 5), window);
+    }
+}